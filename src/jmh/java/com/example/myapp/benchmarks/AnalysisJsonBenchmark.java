@@ -0,0 +1,41 @@
+package com.example.myapp.benchmarks;
+
+import com.example.myapp.dto.AnalysisResult;
+import com.example.myapp.dto.AnalysisScore;
+import com.example.myapp.service.AnalysisJsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lettura del JSON di un'analisi: score() (voto e conteggi, al salvataggio e nel backfill)
+ * e parse() (anche gli elementi, per analysis_item e i report). 18 elementi = analysis.json di esempio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisJsonBenchmark {
+
+    @Param({"18", "100"})
+    public int items;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        json = Payloads.analysisJson(items);
+    }
+
+    @Benchmark
+    public AnalysisScore score() {
+        return AnalysisJsonParser.score(json);
+    }
+
+    @Benchmark
+    public AnalysisResult parse() {
+        return AnalysisJsonParser.parse(json);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.myapp.benchmarks;
+
+import com.example.myapp.entity.Role;
+import com.example.myapp.entity.User;
+import com.example.myapp.service.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Firma e verifica dei token: a ogni login/refresh (firma) e a ogni refresh (verifica). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    // stesso formato di app.jwt.secret
+    private static final String SECRET = "94a5e0030588147d15a9a4e32d4b998a4d707833a0e1c210632a7627440d9904";
+
+    private JwtService jwtService;
+    private User user;
+    private String accessToken;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService(SECRET, 15, 7);
+        Role role = new Role();
+        role.setId(1L);
+        role.setName("USER");
+        user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark-user");
+        user.setRole(role);
+        accessToken = jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return jwtService.generateRefreshToken(user);
+    }
+
+    @Benchmark
+    public Claims extractAllClaims() {
+        return jwtService.extractAllClaims(accessToken);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.myapp.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Input dei benchmark, con la forma dei dati reali: analisi come in outputs/analysis.json
+ * (id GDPR_*, stato, motivazione di 1-2 frasi) e testi di policy in paragrafi.
+ * Generati con seme fisso, così i risultati di due esecuzioni sono confrontabili.
+ */
+final class Payloads {
+    private Payloads() {}
+
+    private static final String[] STATUSES = { "present", "present", "ambiguous", "missing", "not required" };
+    private static final String[] WORDS = {
+            "personal", "data", "controller", "processing", "purposes", "consent", "retention", "period",
+            "rights", "access", "erasure", "portability", "the", "policy", "of", "and", "to", "is", "for",
+            "third", "parties", "transfer", "legitimate", "interest", "security", "measures", "contact"
+    };
+
+    /** Array JSON di {@code items} elementi, come quello salvato in analysis.data. */
+    static String analysisJson(int items) {
+        Random rnd = new Random(42);
+        StringBuilder sb = new StringBuilder(items * 220).append("[\n");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) sb.append(",\n");
+            sb.append("  {\n")
+              .append("    \"id\": \"GDPR_").append(13 + i % 3).append('_').append(1 + i % 2).append('_')
+              .append((char) ('a' + i % 6)).append(i >= 18 ? "_" + i : "").append("\",\n")
+              .append("    \"status\": \"").append(STATUSES[rnd.nextInt(STATUSES.length)]).append("\",\n")
+              .append("    \"reasoning\": \"").append(sentence(rnd, 20 + rnd.nextInt(15))).append("\"\n")
+              .append("  }");
+        }
+        return sb.append("\n]").toString();
+    }
+
+    /** Testo di policy di circa {@code chars} caratteri, in paragrafi separati da una riga vuota. */
+    static String policyText(int chars) {
+        Random rnd = new Random(7);
+        StringBuilder sb = new StringBuilder(chars + 200);
+        while (sb.length() < chars) {
+            for (int s = 0, n = 3 + rnd.nextInt(4); s < n; s++) {
+                sb.append(sentence(rnd, 12 + rnd.nextInt(18))).append(' ');
+            }
+            sb.append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static String sentence(Random rnd, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            String word = WORDS[rnd.nextInt(WORDS.length)];
+            if (w == 0) word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            else sb.append(' ');
+            sb.append(word);
+        }
+        return sb.append('.').toString();
+    }
+}
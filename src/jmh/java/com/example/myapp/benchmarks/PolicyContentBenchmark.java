@@ -0,0 +1,78 @@
+package com.example.myapp.benchmarks;
+
+import com.example.myapp.dto.ListItem;
+import com.example.myapp.entity.CompressedTextConverter;
+import com.example.myapp.entity.Policy;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Testo delle policy: anteprima calcolata in setContent, voce della lista come in
+ * PolicyService.getPolicies, e compressione gzip di content_gz in scrittura e lettura.
+ * 13000 caratteri ~ policies/policy.txt.
+ * Qui si misura solo la CPU: le allocazioni vengono dal profiler gc (-prof gc, attivo nel profilo
+ * benchmarks) e a fine trial viene stampata la dimensione del testo in UTF-8 e di content_gz.
+ * L'I/O di PostgreSQL (TOAST, pagine lette) non è coperto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolicyContentBenchmark {
+
+    @Param({"2000", "13000", "60000"})
+    public int chars;
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+    private final OffsetDateTime createdAt = OffsetDateTime.now(ZoneOffset.UTC);
+    private String text;
+    private byte[] compressed;
+    private Policy saved;
+
+    @Setup
+    public void setup() {
+        text = Payloads.policyText(chars);
+        compressed = converter.convertToDatabaseColumn(text);
+        saved = new Policy();
+        saved.setContent(text);
+    }
+
+    @TearDown(Level.Trial)
+    public void reportSize() {
+        int raw = text.getBytes(StandardCharsets.UTF_8).length;
+        System.out.printf("%n[size] chars=%d raw=%d B content_gz=%d B (%.1f%%)%n",
+                chars, raw, compressed.length, 100.0 * compressed.length / raw);
+    }
+
+    @Benchmark
+    public Policy setContent() {
+        Policy p = new Policy();
+        p.setContent(text);
+        return p;
+    }
+
+    @Benchmark
+    public ListItem listItem() {
+        // stessa logica di getPolicies, sui valori letti da findPreviewsByIds
+        String preview = saved.getContentLength() >= Policy.PREVIEW_LENGTH
+                ? saved.getPreview().concat("...")
+                : saved.getPreview();
+        return new ListItem(preview, 7, 1L, createdAt);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return converter.convertToDatabaseColumn(text);
+    }
+
+    @Benchmark
+    public String decompress() {
+        return converter.convertToEntityAttribute(compressed);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.myapp.benchmarks;
+
+import com.example.myapp.entity.Role;
+import com.example.myapp.entity.User;
+import com.example.myapp.service.JwtService;
+import com.example.myapp.service.TokenHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash del refresh token (login, refresh, logout): TokenHasher contro il vecchio hashRefresh
+ * di AuthService (getInstance + getBytes + Base64 a ogni chiamata), con 1 e 4 thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenHashBenchmark {
+
+    private String refreshToken;
+
+    @Setup
+    public void setup() {
+        Role role = new Role();
+        role.setName("USER");
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark-user");
+        user.setRole(role);
+        refreshToken = new JwtService("94a5e0030588147d15a9a4e32d4b998a4d707833a0e1c210632a7627440d9904", 15, 7)
+                .generateRefreshToken(user);
+    }
+
+    @Benchmark
+    public String getInstanceBase64() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] digest = md.digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    @Benchmark
+    public byte[] tokenHasher() {
+        return TokenHasher.sha256(refreshToken);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getInstanceBase64Threads4() throws Exception {
+        return getInstanceBase64();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] tokenHasherThreads4() {
+        return tokenHasher();
+    }
+}
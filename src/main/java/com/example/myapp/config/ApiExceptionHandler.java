@@ -1,5 +1,7 @@
 package com.example.myapp.config;
 
+import com.example.myapp.service.PasswordHashingOverloadedException;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -13,6 +15,18 @@ import java.util.Map;
 @RestControllerAdvice
 public class ApiExceptionHandler {
 
+    // input non valido (es. NumberFormatException, page < 1)
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, Object> badRequest(Exception ex, HttpServletRequest req) {
+        return Map.of(
+                "status", 400,
+                "error", "Bad Request",
+                "message", ex.getMessage(),
+                "path", req.getRequestURI()
+        );
+    }
+
     @ExceptionHandler({ UsernameNotFoundException.class, BadCredentialsException.class })
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     public Map<String, Object> unauthorized(Exception ex, HttpServletRequest req) {
@@ -24,6 +38,29 @@ public class ApiExceptionHandler {
         );
     }
 
+    @ExceptionHandler(EntityNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public Map<String, Object> notFound(Exception ex, HttpServletRequest req) {
+        return Map.of(
+                "status", 404,
+                "error", "Not Found",
+                "message", ex.getMessage(),
+                "path", req.getRequestURI()
+        );
+    }
+
+    // pool di hashing delle password pieno (vedi PasswordHashingService)
+    @ExceptionHandler(PasswordHashingOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, Object> overloaded(Exception ex, HttpServletRequest req) {
+        return Map.of(
+                "status", 503,
+                "error", "Service Unavailable",
+                "message", ex.getMessage(),
+                "path", req.getRequestURI()
+        );
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Map<String, Object> generic(Exception ex, HttpServletRequest req) {
@@ -0,0 +1,136 @@
+package com.example.myapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * JwtDecoder con cache LRU dei token già verificati: un access token viene riusato per tutta
+ * la sua durata, quindi dalla seconda richiesta in poi firma HMAC e parsing dei claims vengono saltati.
+ * La chiave è il token stesso: una normale HashMap di String (hashCode + equals sul testo completo),
+ * senza digest, che costerebbe quanto buona parte della verifica HMAC evitata.
+ * Una voce vale solo fino alla exp del token; dopo si torna al decoder
+ * delegato, che applica le sue regole (clock skew compreso) e rifiuta il token scaduto.
+ * Insieme al Jwt viene tenuta la lista delle authorities calcolata dal converter, non il
+ * JwtAuthenticationToken, che è mutabile e viene ricreato a ogni richiesta.
+ * Metriche: jwt.decoder.cache.lookups (tag result=hit|miss|expired, un solo incremento per decode)
+ * e jwt.decoder.cache.size.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final int maxSize;
+    private final Clock clock;
+
+    // access-order = LRU; sincronizzata su se stessa
+    private final LinkedHashMap<String, Entry> cache;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+
+    public CachingJwtDecoder(JwtDecoder delegate, int maxSize, MeterRegistry meterRegistry) {
+        this(delegate, maxSize, meterRegistry, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, int maxSize, MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.clock = clock;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > CachingJwtDecoder.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("jwt.decoder.cache.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("jwt.decoder.cache.lookups").tag("result", "miss").register(meterRegistry);
+        this.expired = Counter.builder("jwt.decoder.cache.lookups").tag("result", "expired").register(meterRegistry);
+        Gauge.builder("jwt.decoder.cache.size", this, CachingJwtDecoder::size).register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (maxSize <= 0 || token == null) return delegate.decode(token);
+
+        Entry entry = lookup(token, true);
+        if (entry != null) return entry.jwt;
+
+        // solo i token validi finiscono in cache: un errore qui viene propagato
+        Jwt jwt = delegate.decode(token);
+        if (jwt.getExpiresAt() != null) {
+            synchronized (cache) {
+                cache.put(token, new Entry(jwt));
+            }
+        }
+        return jwt;
+    }
+
+    /**
+     * Authorities del token, calcolate con {@code mapper} una sola volta per token finché resta in cache.
+     * Se il Jwt non viene dalla cache (cache disabilitata o voce già rimossa) vengono ricalcolate.
+     */
+    public Collection<GrantedAuthority> authorities(Jwt jwt, Function<Jwt, List<GrantedAuthority>> mapper) {
+        Entry entry = maxSize > 0 ? lookup(jwt.getTokenValue(), false) : null;
+        if (entry == null || entry.jwt != jwt) return mapper.apply(jwt);
+
+        List<GrantedAuthority> authorities = entry.authorities;
+        if (authorities == null) {
+            // due thread possono calcolarle insieme: il risultato è lo stesso
+            authorities = List.copyOf(mapper.apply(jwt));
+            entry.authorities = authorities;
+        }
+        return authorities;
+    }
+
+    /** Voce valida del token, o null; con {@code record} conta l'esito (hit, miss o expired). */
+    private Entry lookup(String token, boolean record) {
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(token);
+        }
+        if (entry == null) {
+            if (record) misses.increment();
+            return null;
+        }
+        if (!clock.instant().isBefore(entry.expiresAt)) {
+            synchronized (cache) {
+                cache.remove(token, entry);
+            }
+            if (record) expired.increment();
+            return null;
+        }
+        if (record) hits.increment();
+        return entry;
+    }
+
+    private int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static final class Entry {
+        final Jwt jwt;
+        final Instant expiresAt;
+        volatile List<GrantedAuthority> authorities;
+
+        Entry(Jwt jwt) {
+            this.jwt = jwt;
+            this.expiresAt = jwt.getExpiresAt();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.myapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Job periodici (@Scheduled): backfill, pulizie
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
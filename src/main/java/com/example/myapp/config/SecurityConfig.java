@@ -1,5 +1,6 @@
 package com.example.myapp.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,7 +10,9 @@ import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
@@ -21,16 +24,32 @@ import org.springframework.security.web.SecurityFilterChain;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
+    /**
+     * Nuovi hash con app.auth.password.encoder (bcrypt o argon2, con prefisso {id});
+     * gli hash BCrypt già salvati senza prefisso continuano a essere verificati come bcrypt.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.auth.password.encoder:bcrypt}") String encodeId,
+                                           @Value("${app.auth.password.bcrypt-strength:10}") int bcryptStrength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if (!encoders.containsKey(encodeId)) throw new IllegalArgumentException("Unknown password encoder: " + encodeId);
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encodeId, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
     }
     @Bean
-    SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    SecurityFilterChain filterChain(HttpSecurity http,
+                                    Converter<Jwt, ? extends AbstractAuthenticationToken> jwtAuthConverter) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(c -> {}) // optional: if you have CORS needs
@@ -39,10 +58,18 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.POST, "/api/auth/signup").permitAll()
                                 .requestMatchers(HttpMethod.POST, "/api/auth/login").permitAll()
                                 .requestMatchers(HttpMethod.POST, "/api/auth/refresh").permitAll()
+                                .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
                                 .requestMatchers(HttpMethod.POST, "/api/policies/analyze1").hasAnyRole("USER","USERPREMIUM")
+                                .requestMatchers(HttpMethod.POST, "/api/policies/analyze1/stream").hasAnyRole("USER","USERPREMIUM")
                                 .requestMatchers(HttpMethod.POST, "/api/policies/analyze2").hasRole("USERPREMIUM")
                                 .requestMatchers(HttpMethod.POST, "/api/policies/save").hasAnyRole("USER","USERPREMIUM")
+                                .requestMatchers(HttpMethod.POST, "/api/policies/import").hasRole("ADMIN")
                                 .requestMatchers(HttpMethod.POST, "/api/policies/count").hasAnyRole("USER","USERPREMIUM")
+                                .requestMatchers(HttpMethod.POST, "/api/policies/revisions").hasAnyRole("USER","USERPREMIUM")
+                                .requestMatchers(HttpMethod.GET, "/api/policies/*/history").hasAnyRole("USER","USERPREMIUM")
+                                .requestMatchers("/api/policies/jobs/**").hasAnyRole("USER","USERPREMIUM")
+                                .requestMatchers("/api/policies/batches/**").hasAnyRole("USER","USERPREMIUM")
+                                .requestMatchers(HttpMethod.GET, "/api/policies/report/**").hasAnyRole("USER","USERPREMIUM")
 
 
                                 .anyRequest().authenticated()
@@ -52,7 +79,7 @@ public class SecurityConfig {
                 .httpBasic(b -> b.disable())
                 .formLogin(f -> f.disable())
                 .oauth2ResourceServer(oauth -> oauth
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthConverter()))
+                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthConverter))
                 );
         // .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class); // when JWT is ready
 
@@ -60,35 +87,42 @@ public class SecurityConfig {
     }
 
     // Mappa il claim "roles" in authorities Spring: ROLE_USER/ROLE_ADMIN...
+    // (calcolate una volta per token finché il token resta nella cache del decoder)
     @Bean
-    Converter<Jwt, ? extends AbstractAuthenticationToken> jwtAuthConverter() {
-        return jwt -> {
-            Object raw = jwt.getClaims().getOrDefault("roles", jwt.getClaims().get("role"));
-            java.util.List<String> roles = switch (raw) {
-                case String s -> java.util.Arrays.asList(s.split("\\s+")); // es. "USER ADMIN"
-                case java.util.Collection<?> c -> c.stream().map(String::valueOf).toList();
-                case null -> java.util.List.of();
-                default -> java.util.List.of(String.valueOf(raw));
-            };
-            var auths = roles.stream()
-                    .filter(r -> !r.isBlank())
-                    .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
-                    .map(org.springframework.security.core.authority.SimpleGrantedAuthority::new)
-                    .toList();
-            return new org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken(jwt, auths, jwt.getSubject());
+    Converter<Jwt, ? extends AbstractAuthenticationToken> jwtAuthConverter(CachingJwtDecoder jwtDecoder) {
+        return jwt -> new JwtAuthenticationToken(jwt, jwtDecoder.authorities(jwt, SecurityConfig::roleAuthorities),
+                jwt.getSubject());
+    }
+
+    static java.util.List<org.springframework.security.core.GrantedAuthority> roleAuthorities(Jwt jwt) {
+        Object raw = jwt.getClaims().getOrDefault("roles", jwt.getClaims().get("role"));
+        java.util.List<String> roles = switch (raw) {
+            case String s -> java.util.Arrays.asList(s.split("\\s+")); // es. "USER ADMIN"
+            case java.util.Collection<?> c -> c.stream().map(String::valueOf).toList();
+            case null -> java.util.List.of();
+            default -> java.util.List.of(String.valueOf(raw));
         };
+        return roles.stream()
+                .filter(r -> !r.isBlank())
+                .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
+                .<org.springframework.security.core.GrantedAuthority>map(
+                        org.springframework.security.core.authority.SimpleGrantedAuthority::new)
+                .toList();
     }
 
 
 
 
     @Bean
-    JwtDecoder jwtDecoder(@Value("${app.jwt.secret}") String secret) {
+    CachingJwtDecoder jwtDecoder(@Value("${app.jwt.secret}") String secret,
+                                 @Value("${app.jwt.decoder-cache.max-size:10000}") int cacheMaxSize,
+                                 MeterRegistry meterRegistry) {
         byte[] keyBytes = Base64.getDecoder().decode(secret);
         SecretKey key = new SecretKeySpec(keyBytes, "HmacSHA256");
-        return NimbusJwtDecoder.withSecretKey(key)
+        JwtDecoder nimbus = NimbusJwtDecoder.withSecretKey(key)
                 .macAlgorithm(org.springframework.security.oauth2.jose.jws.MacAlgorithm.HS256)
                 .build();
+        return new CachingJwtDecoder(nimbus, cacheMaxSize, meterRegistry);
     }
 
 }
\ No newline at end of file
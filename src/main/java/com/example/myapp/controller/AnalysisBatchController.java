@@ -0,0 +1,66 @@
+package com.example.myapp.controller;
+
+import com.example.myapp.dto.AnalysisBatchResponse;
+import com.example.myapp.dto.BatchItemRequest;
+import com.example.myapp.service.AnalysisBatchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/policies/batches")
+public class AnalysisBatchController {
+
+    private final AnalysisBatchService batchService;
+
+    public AnalysisBatchController(AnalysisBatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    /**
+     * Accoda l'analisi di più testi; i risultati vengono salvati come Policy + Analysis
+     * POST /api/policies/batches   body: [{"name":"...","text":"..."}, ...]
+     */
+    @PostMapping
+    public ResponseEntity<AnalysisBatchResponse> submit(@RequestBody List<BatchItemRequest> items,
+                                                        @AuthenticationPrincipal Jwt jwt) {
+        return accepted(batchService.submit(items, CurrentUser.id(jwt)));
+    }
+
+    /**
+     * Come sopra, con un archivio zip di file .txt (campo multipart "file")
+     * POST /api/policies/batches/archive
+     */
+    @PostMapping(value = "/archive", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<AnalysisBatchResponse> submitArchive(@RequestParam("file") MultipartFile file,
+                                                               @AuthenticationPrincipal Jwt jwt) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return accepted(batchService.submitArchive(in, CurrentUser.id(jwt)));
+        }
+    }
+
+    /**
+     * Avanzamento del batch, con lo stato di ogni elemento
+     * GET /api/policies/batches/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<AnalysisBatchResponse> status(@PathVariable UUID id, @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(batchService.getBatch(id, CurrentUser.id(jwt)));
+    }
+
+    private static ResponseEntity<AnalysisBatchResponse> accepted(AnalysisBatchResponse batch) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/policies/batches/" + batch.batchId()))
+                .body(batch);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.myapp.controller;
+
+import com.example.myapp.dto.AnalysisJobResponse;
+import com.example.myapp.dto.StringDto;
+import com.example.myapp.service.AnalysisJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/policies/jobs")
+public class AnalysisJobController {
+
+    private final AnalysisJobService jobService;
+
+    public AnalysisJobController(AnalysisJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Accoda un'analisi e restituisce subito l'id del job
+     * POST /api/policies/jobs
+     */
+    @PostMapping
+    public ResponseEntity<AnalysisJobResponse> submit(@RequestBody StringDto policyText,
+                                                      @AuthenticationPrincipal Jwt jwt) {
+        AnalysisJobResponse job = jobService.submit(policyText.stringa(), CurrentUser.id(jwt));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/policies/jobs/" + job.jobId()))
+                .body(job);
+    }
+
+    /**
+     * Stato (e risultato, se pronto) di un job.
+     * Con ?wait=N aspetta fino a N secondi che il job termini (long-polling).
+     * GET /api/policies/jobs/{id}
+     */
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<AnalysisJobResponse>> status(@PathVariable UUID id,
+                                                                         @RequestParam(defaultValue = "0") long wait,
+                                                                         @AuthenticationPrincipal Jwt jwt) {
+        return jobService.awaitJob(id, CurrentUser.id(jwt), Duration.ofSeconds(wait))
+                .thenApply(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.myapp.controller;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/** Id dell'utente autenticato, letto dal claim "uid" del token emesso da JwtService. */
+final class CurrentUser {
+
+    private CurrentUser() {}
+
+    static Long id(Jwt jwt) {
+        if (jwt == null) return null;
+        Object uid = jwt.getClaims().get("uid");
+        return uid instanceof Number n ? n.longValue() : null;
+    }
+}
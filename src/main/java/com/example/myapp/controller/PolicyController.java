@@ -1,24 +1,53 @@
 package com.example.myapp.controller;
 
+import com.example.myapp.dto.ArticleCompliance;
 import com.example.myapp.dto.GetResult1;
+import com.example.myapp.dto.ImportReport;
+import com.example.myapp.dto.ItemStatusCount;
+import com.example.myapp.dto.ItemStatusTotal;
+import com.example.myapp.dto.PolicyCount;
+import com.example.myapp.dto.PolicyVersion;
+import com.example.myapp.dto.RevisionRequest;
+import com.example.myapp.dto.RevisionResponse;
 import com.example.myapp.dto.SaveResultRequest;
 import com.example.myapp.dto.StringDto;
 import com.example.myapp.dto.UserPoliciesList;
+import com.example.myapp.service.AnalysisReportService;
+import com.example.myapp.service.AnalysisStreamService;
+import com.example.myapp.service.PolicyImportService;
+import com.example.myapp.service.PolicyRevisionService;
 import com.example.myapp.service.PolicyService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.OffsetDateTime;
 import java.util.HashMap;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/policies")
 public class PolicyController {
 
     private final PolicyService policyService;
+    private final AnalysisStreamService analysisStreamService;
+    private final AnalysisReportService analysisReportService;
+    private final PolicyImportService policyImportService;
+    private final PolicyRevisionService policyRevisionService;
 
-    public PolicyController(PolicyService policyService) {
+    public PolicyController(PolicyService policyService, AnalysisStreamService analysisStreamService,
+                            AnalysisReportService analysisReportService, PolicyImportService policyImportService,
+                            PolicyRevisionService policyRevisionService) {
         this.policyService = policyService;
+        this.analysisStreamService = analysisStreamService;
+        this.analysisReportService = analysisReportService;
+        this.policyImportService = policyImportService;
+        this.policyRevisionService = policyRevisionService;
     }
 
     /**
@@ -31,6 +60,15 @@ public class PolicyController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Import massivo: una SaveResultRequest JSON per riga (NDJSON), con esito per riga
+     * POST /api/policies/import
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<ImportReport> importPolicies(InputStream body) throws IOException {
+        return ResponseEntity.ok(policyImportService.importNdjson(body));
+    }
+
     /**
      * Recupera una Policy + prima Analysis
      * GET /api/policies/{id}
@@ -42,12 +80,15 @@ public class PolicyController {
     }
 
     /**
-     * Recupera tutte le policy di un utente (id → createdAt)
-     * GET /api/policies/user/{userId}
+     * Recupera una pagina delle policy di un utente (body: "userId / page", page da 1)
+     * POST /api/policies/getPolicies?size=N&sort=date|score&minScore=0..10
      */
     @PostMapping("/getPolicies")
-    public ResponseEntity<UserPoliciesList> getPolicies(@RequestBody StringDto req) {
-        UserPoliciesList result = policyService.getPolicies(req);
+    public ResponseEntity<UserPoliciesList> getPolicies(@RequestBody StringDto req,
+                                                        @RequestParam(required = false) Integer size,
+                                                        @RequestParam(defaultValue = "date") String sort,
+                                                        @RequestParam(defaultValue = "0") int minScore) {
+        UserPoliciesList result = policyService.getPolicies(req, size, sort, minScore);
         return ResponseEntity.ok(result);
     }
 
@@ -57,12 +98,87 @@ public class PolicyController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Analisi in streaming (SSE): un evento "item" per ogni elemento della checklist,
+     * poi "done" con il JSON completo, già salvato come nuova Policy + Analysis.
+     * POST /api/policies/analyze1/stream
+     */
+    @PostMapping(value = "/analyze1/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analyzeStream(@RequestBody StringDto policyText, @AuthenticationPrincipal Jwt jwt) {
+        return analysisStreamService.stream(policyText.stringa(), CurrentUser.id(jwt));
+    }
+
+    /**
+     * Analizza una nuova versione di una policy rianalizzando solo gli elementi toccati dalle modifiche,
+     * e la salva nella catena delle versioni (body: {"text": "...", "previousPolicyId": 12 | null})
+     * POST /api/policies/revisions
+     */
+    @PostMapping("/revisions")
+    public ResponseEntity<RevisionResponse> analyzeRevision(@RequestBody RevisionRequest req,
+                                                            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(policyRevisionService.analyzeRevision(req, CurrentUser.id(jwt)));
+    }
+
+    /**
+     * Versioni della policy, dalla prima
+     * GET /api/policies/{id}/history
+     */
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<PolicyVersion>> history(@PathVariable Long id, @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(policyRevisionService.history(id, CurrentUser.id(jwt)));
+    }
+
+    /**
+     * Numero di policy dell'utente e di pagine (con ?size=N come in getPolicies)
+     * POST /api/policies/count
+     */
     @PostMapping("/count")
-    public ResponseEntity<StringDto> count(@RequestBody StringDto id) {
-        StringDto res =  policyService.numPages(id);
+    public ResponseEntity<PolicyCount> count(@RequestBody StringDto id,
+                                             @RequestParam(required = false) Integer size) {
+        PolicyCount res =  policyService.numPages(id, size);
         return ResponseEntity.ok(res);
 
     }
 
+    /**
+     * Conteggi (elemento checklist, stato) su tutte le analisi dell'utente
+     * GET /api/policies/report/items
+     */
+    @GetMapping("/report/items")
+    public ResponseEntity<List<ItemStatusCount>> itemReport(@AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(analysisReportService.itemStatusCounts(CurrentUser.id(jwt)));
+    }
+
+    /**
+     * Id delle policy dell'utente in cui l'elemento ha lo stato indicato
+     * GET /api/policies/report/items/{itemId}?status=missing
+     */
+    @GetMapping("/report/items/{itemId}")
+    public ResponseEntity<List<Long>> policiesByItem(@PathVariable String itemId,
+                                                     @RequestParam(defaultValue = "missing") String status,
+                                                     @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(analysisReportService.policiesWithItemStatus(
+                CurrentUser.id(jwt), itemId, status));
+    }
+
+    /**
+     * Numero di analisi dell'utente per ciascuno stato dell'elemento (da analysis_item)
+     * GET /api/policies/report/items/{itemId}/statuses
+     */
+    @GetMapping("/report/items/{itemId}/statuses")
+    public ResponseEntity<List<ItemStatusTotal>> itemStatuses(@PathVariable String itemId,
+                                                              @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(analysisReportService.itemStatusTotals(CurrentUser.id(jwt), itemId));
+    }
+
+    /**
+     * Tasso di conformità per articolo GDPR su tutte le policy dell'utente
+     * GET /api/policies/report/articles
+     */
+    @GetMapping("/report/articles")
+    public ResponseEntity<List<ArticleCompliance>> articleReport(@AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(analysisReportService.articleCompliance(CurrentUser.id(jwt)));
+    }
+
 
 }
@@ -0,0 +1,8 @@
+package com.example.myapp.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record AnalysisBatchResponse(UUID batchId, int total, int queued, int running, int done, int failed,
+                                    OffsetDateTime createdAt, List<BatchItemProgress> items) {}
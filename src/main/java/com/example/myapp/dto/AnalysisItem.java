@@ -0,0 +1,9 @@
+package com.example.myapp.dto;
+
+public record AnalysisItem(String id, AnalysisItemStatus status, String reasoning) {
+
+    /** Id come in checklist.json: l'analyzer a volte aggiunge un "-" finale (es. "GDPR_13_1_a-"). */
+    public String checklistId() {
+        return id != null && id.endsWith("-") ? id.substring(0, id.length() - 1) : id;
+    }
+}
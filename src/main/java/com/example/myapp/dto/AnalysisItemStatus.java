@@ -0,0 +1,23 @@
+package com.example.myapp.dto;
+
+import java.util.Locale;
+
+/** Esito di un elemento della checklist, come emesso dall'analyzer ("present", "not required", ...). */
+public enum AnalysisItemStatus {
+    PRESENT,
+    AMBIGUOUS,
+    MISSING,
+    NOT_REQUIRED,
+    UNKNOWN;
+
+    public static AnalysisItemStatus from(String raw) {
+        if (raw == null) return UNKNOWN;
+        return switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "present" -> PRESENT;
+            case "ambiguous", "ambiguos" -> AMBIGUOUS; // la checklist usa "ambiguos"
+            case "missing" -> MISSING;
+            case "not required", "not_required", "not-required" -> NOT_REQUIRED;
+            default -> UNKNOWN;
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.myapp.dto;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public record AnalysisJobResponse(UUID jobId, String status, String resJson, String error,
+                                  OffsetDateTime createdAt, OffsetDateTime finishedAt) {}
@@ -0,0 +1,6 @@
+package com.example.myapp.dto;
+
+import java.util.List;
+
+/** Analisi letta in forma tipizzata: elementi nell'ordine del JSON + conteggi e voto. */
+public record AnalysisResult(List<AnalysisItem> items, AnalysisScore score) {}
@@ -0,0 +1,4 @@
+package com.example.myapp.dto;
+
+/** Conteggi per stato e voto (0-10) di un'analisi. */
+public record AnalysisScore(int present, int ambiguous, int missing, int score) {}
@@ -0,0 +1,7 @@
+package com.example.myapp.dto;
+
+/**
+ * Conformità per articolo su tutte le policy di un utente:
+ * complianceRate = present / (present + ambiguous + missing), 0 se nessun elemento valutato.
+ */
+public record ArticleCompliance(String article, long present, long ambiguous, long missing, double complianceRate) {}
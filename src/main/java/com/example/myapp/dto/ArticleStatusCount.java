@@ -0,0 +1,9 @@
+package com.example.myapp.dto;
+
+/** Conteggi degli stati per articolo (es. "GDPR_13") letti da analysis_item. */
+public interface ArticleStatusCount {
+    String getArticle();
+    Long getPresent();
+    Long getAmbiguous();
+    Long getMissing();
+}
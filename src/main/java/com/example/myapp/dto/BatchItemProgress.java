@@ -0,0 +1,10 @@
+package com.example.myapp.dto;
+
+import com.example.myapp.entity.AnalysisJobStatus;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/** Stato di un elemento del batch; il risultato si legge da GET /api/policies/jobs/{jobId}. */
+public record BatchItemProgress(UUID jobId, String name, AnalysisJobStatus status, String error,
+                                OffsetDateTime finishedAt) {}
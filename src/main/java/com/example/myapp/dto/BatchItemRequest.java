@@ -0,0 +1,4 @@
+package com.example.myapp.dto;
+
+/** Un testo di un batch; name è opzionale (es. URL o nome file). */
+public record BatchItemRequest(String name, String text) {}
@@ -0,0 +1,4 @@
+package com.example.myapp.dto;
+
+/** Riga NDJSON scartata dall'import (line parte da 1). */
+public record ImportError(int line, String error) {}
@@ -0,0 +1,6 @@
+package com.example.myapp.dto;
+
+import java.util.List;
+
+/** Esito di un import NDJSON; errors contiene al massimo app.policies.import.max-errors righe. */
+public record ImportReport(int total, int imported, int failed, List<ImportError> errors, boolean errorsTruncated) {}
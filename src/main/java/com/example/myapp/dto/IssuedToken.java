@@ -0,0 +1,6 @@
+package com.example.myapp.dto;
+
+import java.time.Instant;
+
+/** Token appena firmato con la sua scadenza, così chi lo salva non deve riparsarlo. */
+public record IssuedToken(String token, Instant expiresAt) {}
@@ -0,0 +1,8 @@
+package com.example.myapp.dto;
+
+/** Quante analisi hanno un certo stato per un elemento della checklist. */
+public interface ItemStatusCount {
+    String getItemId();
+    String getStatus();
+    Long getCount();
+}
@@ -0,0 +1,7 @@
+package com.example.myapp.dto;
+
+/** Numero di analisi con un certo stato per un elemento della checklist (da analysis_item). */
+public interface ItemStatusTotal {
+    AnalysisItemStatus getStatus();
+    Long getTotal();
+}
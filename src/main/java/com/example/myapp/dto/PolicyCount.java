@@ -0,0 +1,7 @@
+package com.example.myapp.dto;
+
+/**
+ * Totale policy di un utente e numero di pagine.
+ * stringa = totalItems come testo, per i client che usano ancora la vecchia risposta StringDto.
+ */
+public record PolicyCount(String stringa, long totalItems, int totalPages, int pageSize) {}
@@ -0,0 +1,6 @@
+package com.example.myapp.dto;
+
+import java.time.OffsetDateTime;
+
+/** Riga della lista policy: solo i primi caratteri del contenuto, non il testo completo. */
+public record PolicyPreview(Long id, String preview, Integer contentLength, OffsetDateTime createdAt) {}
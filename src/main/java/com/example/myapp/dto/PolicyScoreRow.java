@@ -0,0 +1,7 @@
+package com.example.myapp.dto;
+
+/** Id di una policy della pagina e voto della sua prima analisi (NULL se non ancora calcolato). */
+public interface PolicyScoreRow {
+    Long getId();
+    Integer getScore();
+}
@@ -0,0 +1,6 @@
+package com.example.myapp.dto;
+
+import java.time.OffsetDateTime;
+
+/** Una versione nella storia di una policy (version parte da 1). */
+public record PolicyVersion(Long id, Long previousVersionId, int version, OffsetDateTime createdAt) {}
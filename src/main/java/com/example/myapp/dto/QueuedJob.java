@@ -0,0 +1,6 @@
+package com.example.myapp.dto;
+
+import java.util.UUID;
+
+/** Job da rimettere in coda all'avvio: id + proprietario (per lo scheduling equo tra utenti). */
+public record QueuedJob(UUID id, Long userId) {}
@@ -0,0 +1,4 @@
+package com.example.myapp.dto;
+
+/** Nuovo testo di una policy; previousPolicyId opzionale (senza, la versione precedente viene cercata per somiglianza). */
+public record RevisionRequest(String text, Long previousPolicyId) {}
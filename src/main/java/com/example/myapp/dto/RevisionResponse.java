@@ -0,0 +1,9 @@
+package com.example.myapp.dto;
+
+/**
+ * Esito dell'analisi di una revisione: previousPolicyId è null se non è stata trovata
+ * una versione precedente (analisi completa). rerunItems/reusedItems dicono quanti
+ * elementi della checklist sono stati rianalizzati o ripresi dall'analisi precedente.
+ */
+public record RevisionResponse(Long policyId, Long previousPolicyId, int version, double similarity,
+                               int rerunItems, int reusedItems, String resJson) {}
@@ -0,0 +1,23 @@
+package com.example.myapp.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Refresh token come lo vede RefreshTokenStore: solo l'hash SHA-256 (32 byte), mai il token in chiaro.
+ * revokedAt è null finché il token non viene revocato.
+ */
+public record StoredRefreshToken(
+        Long userId,
+        byte[] tokenHash,
+        OffsetDateTime issuedAt,
+        OffsetDateTime expiresAt,
+        OffsetDateTime revokedAt
+) {
+    public boolean revoked() {
+        return revokedAt != null;
+    }
+
+    public boolean isActive(OffsetDateTime now) {
+        return !revoked() && expiresAt.isAfter(now);
+    }
+}
@@ -1,26 +1,44 @@
 package com.example.myapp.entity;
 
 
+import com.example.myapp.dto.AnalysisScore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.OffsetDateTime;
 
 @Entity
 @Table(name = "analysis")
 public class Analysis {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analysis_seq")
+    @SequenceGenerator(name = "analysis_seq", sequenceName = "analysis_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "policy_id", nullable = false)
     private Policy policy;
 
-    @Column(name = "data", columnDefinition = "text", nullable = false)
-    private String data;  // JSON stored as String
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "data", columnDefinition = "jsonb", nullable = false)
+    private String data;  // JSON (jsonb), esposto come String
 
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
+    // precalcolati al salvataggio (V9); NULL solo per righe non ancora ricalcolate dal backfill
+    @Column(name = "score")
+    private Integer score;
+
+    @Column(name = "present_count")
+    private Integer presentCount;
+
+    @Column(name = "ambiguous_count")
+    private Integer ambiguousCount;
+
+    @Column(name = "missing_count")
+    private Integer missingCount;
+
     @PrePersist
     public void prePersist() {
         if (createdAt == null) createdAt = OffsetDateTime.now();
@@ -44,4 +62,19 @@ public class Analysis {
     public void setData(String data) { this.data = data; }
     public OffsetDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+    public Integer getScore() { return score; }
+    public void setScore(Integer score) { this.score = score; }
+    public Integer getPresentCount() { return presentCount; }
+    public void setPresentCount(Integer presentCount) { this.presentCount = presentCount; }
+    public Integer getAmbiguousCount() { return ambiguousCount; }
+    public void setAmbiguousCount(Integer ambiguousCount) { this.ambiguousCount = ambiguousCount; }
+    public Integer getMissingCount() { return missingCount; }
+    public void setMissingCount(Integer missingCount) { this.missingCount = missingCount; }
+
+    public void applyScore(AnalysisScore s) {
+        this.score = s.score();
+        this.presentCount = s.present();
+        this.ambiguousCount = s.ambiguous();
+        this.missingCount = s.missing();
+    }
 }
@@ -0,0 +1,47 @@
+package com.example.myapp.entity;
+
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "analysis_batch")
+public class AnalysisBatch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private int total;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) createdAt = OffsetDateTime.now();
+    }
+
+    public AnalysisBatch(User user, int total, OffsetDateTime createdAt) {
+        this.user = user;
+        this.total = total;
+        this.createdAt = createdAt;
+    }
+
+    public AnalysisBatch() {}
+
+    // getters/setters
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+}
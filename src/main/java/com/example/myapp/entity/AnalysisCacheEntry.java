@@ -0,0 +1,46 @@
+package com.example.myapp.entity;
+
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "analysis_cache")
+public class AnalysisCacheEntry {
+    @Id
+    @Column(name = "content_hash")
+    private String contentHash;
+
+    @Column(name = "checklist_version", nullable = false)
+    private String checklistVersion;
+
+    @Column(name = "data", columnDefinition = "text", nullable = false)
+    private String data;  // JSON stored as String
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) createdAt = OffsetDateTime.now();
+    }
+
+    public AnalysisCacheEntry(String contentHash, String checklistVersion, String data, OffsetDateTime createdAt) {
+        this.contentHash = contentHash;
+        this.checklistVersion = checklistVersion;
+        this.data = data;
+        this.createdAt = createdAt;
+    }
+
+    public AnalysisCacheEntry() {}
+
+    // getters/setters
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public String getChecklistVersion() { return checklistVersion; }
+    public void setChecklistVersion(String checklistVersion) { this.checklistVersion = checklistVersion; }
+    public String getData() { return data; }
+    public void setData(String data) { this.data = data; }
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+}
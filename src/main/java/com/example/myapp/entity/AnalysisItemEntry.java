@@ -0,0 +1,49 @@
+package com.example.myapp.entity;
+
+
+import com.example.myapp.dto.AnalysisItemStatus;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "analysis_item")
+public class AnalysisItemEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analysis_item_seq")
+    @SequenceGenerator(name = "analysis_item_seq", sequenceName = "analysis_item_id_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "analysis_id", nullable = false)
+    private Analysis analysis;
+
+    @Column(name = "item_id", nullable = false, length = 64)
+    private String itemId;  // id di checklist.json, senza "-" finale
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private AnalysisItemStatus status;
+
+    @Column(name = "reasoning", columnDefinition = "text")
+    private String reasoning;
+
+    public AnalysisItemEntry(Analysis analysis, String itemId, AnalysisItemStatus status, String reasoning) {
+        this.analysis = analysis;
+        this.itemId = itemId;
+        this.status = status;
+        this.reasoning = reasoning;
+    }
+
+    public AnalysisItemEntry() {}
+
+    // getters/setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Analysis getAnalysis() { return analysis; }
+    public void setAnalysis(Analysis analysis) { this.analysis = analysis; }
+    public String getItemId() { return itemId; }
+    public void setItemId(String itemId) { this.itemId = itemId; }
+    public AnalysisItemStatus getStatus() { return status; }
+    public void setStatus(AnalysisItemStatus status) { this.status = status; }
+    public String getReasoning() { return reasoning; }
+    public void setReasoning(String reasoning) { this.reasoning = reasoning; }
+}
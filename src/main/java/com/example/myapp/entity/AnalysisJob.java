@@ -0,0 +1,98 @@
+package com.example.myapp.entity;
+
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "analysis_job")
+public class AnalysisJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AnalysisJobStatus status;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "batch_id")
+    private AnalysisBatch batch;
+
+    @Column(columnDefinition = "text")
+    private String name;
+
+    // true = al termine il risultato viene salvato come Policy + Analysis
+    @Column(nullable = false)
+    private boolean persist;
+
+    @Column(columnDefinition = "text", nullable = false)
+    private String input;
+
+    @Column(columnDefinition = "text")
+    private String result;  // JSON stored as String
+
+    @Column(columnDefinition = "text")
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "started_at")
+    private OffsetDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private OffsetDateTime finishedAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) createdAt = OffsetDateTime.now();
+    }
+
+    public AnalysisJob(User user, String input, OffsetDateTime createdAt) {
+        this.user = user;
+        this.input = input;
+        this.status = AnalysisJobStatus.QUEUED;
+        this.createdAt = createdAt;
+    }
+
+    public AnalysisJob(User user, AnalysisBatch batch, String name, String input, OffsetDateTime createdAt) {
+        this(user, input, createdAt);
+        this.batch = batch;
+        this.name = name;
+        this.persist = true;
+    }
+
+    public AnalysisJob() {}
+
+    // getters/setters
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    public AnalysisJobStatus getStatus() { return status; }
+    public void setStatus(AnalysisJobStatus status) { this.status = status; }
+    public AnalysisBatch getBatch() { return batch; }
+    public void setBatch(AnalysisBatch batch) { this.batch = batch; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public boolean isPersist() { return persist; }
+    public void setPersist(boolean persist) { this.persist = persist; }
+    public String getInput() { return input; }
+    public void setInput(String input) { this.input = input; }
+    public String getResult() { return result; }
+    public void setResult(String result) { this.result = result; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+    public OffsetDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(OffsetDateTime startedAt) { this.startedAt = startedAt; }
+    public OffsetDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(OffsetDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -0,0 +1,10 @@
+package com.example.myapp.entity;
+
+public enum AnalysisJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED;
+
+    public boolean isTerminal() { return this == DONE || this == FAILED; }
+}
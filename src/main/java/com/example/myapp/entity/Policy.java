@@ -7,8 +7,11 @@ import java.time.OffsetDateTime;
 @Entity
 @Table(name = "policy")
 public class Policy {
+    public static final int PREVIEW_LENGTH = 401;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "policy_seq")
+    @SequenceGenerator(name = "policy_seq", sequenceName = "policy_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -16,12 +19,35 @@ public class Policy {
     private User user;
 
 
+    // testo completo compresso (V16)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "content_gz")
+    private String compressedContent;
+
+    // testo non compresso delle righe precedenti a V16, finché PolicyContentBackfill non le converte
+    @Column(name = "content", columnDefinition = "text")
+    private String legacyContent;
+
+    // primi PREVIEW_LENGTH caratteri, per la lista
     @Column(columnDefinition = "text", nullable = false)
-    private String content;
+    private String preview;
+
+    @Column(name = "content_length", nullable = false)
+    private Integer contentLength;
 
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
+    // catena delle versioni (V15): NULL per le policy originali
+    @Column(name = "previous_version_id")
+    private Long previousVersionId;
+
+    @Column(name = "root_id")
+    private Long rootId;
+
+    @Column(nullable = false)
+    private int version = 1;
+
     @PrePersist
     public void prePersist() {
         if (createdAt == null) createdAt = OffsetDateTime.now();
@@ -30,7 +56,7 @@ public class Policy {
     public Policy(User user, String content, OffsetDateTime createdAt) {
 
         this.user = user;
-        this.content = content;
+        setContent(content);
         this.createdAt = createdAt;
     }
 
@@ -41,8 +67,37 @@ public class Policy {
     public void setId(Long id) { this.id = id; }
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
-    public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
+    public String getContent() { return compressedContent != null ? compressedContent : legacyContent; }
+    public String getPreview() { return preview; }
+    public Integer getContentLength() { return contentLength; }
+    public boolean isCompressed() { return legacyContent == null; }
+
+    /** Salva il testo compresso e aggiorna anteprima e lunghezza (in caratteri, come length() di PostgreSQL). */
+    public void setContent(String content) {
+        this.compressedContent = content;
+        this.legacyContent = null;
+        if (content == null) {
+            this.preview = null;
+            this.contentLength = null;
+            return;
+        }
+        int chars = content.codePointCount(0, content.length());
+        this.contentLength = chars;
+        this.preview = content.substring(0, content.offsetByCodePoints(0, Math.min(chars, PREVIEW_LENGTH)));
+    }
     public OffsetDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+    public Long getPreviousVersionId() { return previousVersionId; }
+    public void setPreviousVersionId(Long previousVersionId) { this.previousVersionId = previousVersionId; }
+    public Long getRootId() { return rootId; }
+    public void setRootId(Long rootId) { this.rootId = rootId; }
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
+    /** Rende questa policy la versione successiva di {@code previous}. */
+    public void revise(Policy previous) {
+        this.previousVersionId = previous.getId();
+        this.rootId = previous.getRootId() != null ? previous.getRootId() : previous.getId();
+        this.version = previous.getVersion() + 1;
+    }
 }
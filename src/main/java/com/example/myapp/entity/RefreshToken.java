@@ -15,8 +15,9 @@ public class RefreshToken {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Column(name = "token_hash", nullable = false, unique = true)
-    private String tokenHash;
+    // SHA-256 del token (32 byte), vedi TokenHasher
+    @Column(name = "token_hash", nullable = false, unique = true, columnDefinition = "bytea")
+    private byte[] tokenHash;
 
     @Column(name = "issued_at", nullable = false)
     private OffsetDateTime issuedAt;
@@ -27,6 +28,10 @@ public class RefreshToken {
     @Column(nullable = false)
     private boolean revoked = false;
 
+    // valorizzato insieme a revoked; da qui conta app.auth.refresh-purge.revoked-retention
+    @Column(name = "revoked_at")
+    private OffsetDateTime revokedAt;
+
     @PrePersist
     public void prePersist() {
         if (issuedAt == null) issuedAt = OffsetDateTime.now();
@@ -37,12 +42,14 @@ public class RefreshToken {
     public void setId(Long id) { this.id = id; }
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
-    public String getTokenHash() { return tokenHash; }
-    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+    public byte[] getTokenHash() { return tokenHash; }
+    public void setTokenHash(byte[] tokenHash) { this.tokenHash = tokenHash; }
     public OffsetDateTime getIssuedAt() { return issuedAt; }
     public void setIssuedAt(OffsetDateTime issuedAt) { this.issuedAt = issuedAt; }
     public OffsetDateTime getExpiresAt() { return expiresAt; }
     public void setExpiresAt(OffsetDateTime expiresAt) { this.expiresAt = expiresAt; }
     public boolean isRevoked() { return revoked; }
     public void setRevoked(boolean revoked) { this.revoked = revoked; }
+    public OffsetDateTime getRevokedAt() { return revokedAt; }
+    public void setRevokedAt(OffsetDateTime revokedAt) { this.revokedAt = revokedAt; }
 }
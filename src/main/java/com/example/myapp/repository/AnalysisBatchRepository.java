@@ -0,0 +1,9 @@
+package com.example.myapp.repository;
+
+import com.example.myapp.entity.AnalysisBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface AnalysisBatchRepository extends JpaRepository<AnalysisBatch, UUID> {
+}
@@ -0,0 +1,28 @@
+package com.example.myapp.repository;
+
+import com.example.myapp.entity.AnalysisCacheEntry;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface AnalysisCacheRepository extends JpaRepository<AnalysisCacheEntry, String> {
+
+    /** Insert senza SELECT preventiva; se un'altra richiesta ha già salvato lo stesso hash non fa nulla. */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO analysis_cache (content_hash, checklist_version, data, created_at) " +
+                   "VALUES (:hash, :version, :data, now()) ON CONFLICT (content_hash) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash, @Param("version") String version, @Param("data") String data);
+
+    /** Cancella al massimo {@code limit} righe salvate con una versione della checklist diversa da {@code version}. */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM analysis_cache WHERE content_hash IN (" +
+                   "SELECT content_hash FROM analysis_cache WHERE checklist_version <> :version " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deleteOtherVersions(@Param("version") String version, @Param("limit") int limit);
+}
@@ -0,0 +1,49 @@
+package com.example.myapp.repository;
+
+import com.example.myapp.dto.ArticleStatusCount;
+import com.example.myapp.dto.ItemStatusTotal;
+import com.example.myapp.entity.AnalysisItemEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface AnalysisItemRepository extends JpaRepository<AnalysisItemEntry, Long> {
+
+    /**
+     * Stati per articolo (prime due parti dell'id: "GDPR_13_2_a" -> "GDPR_13") sulle analisi dell'utente.
+     * policy(user_id) -> analysis(policy_id) -> analysis_item(analysis_id): solo scansioni di indice.
+     */
+    @Query(value = "SELECT split_part(i.item_id, '_', 1) || '_' || split_part(i.item_id, '_', 2) AS \"article\", " +
+                   "count(*) FILTER (WHERE i.status = 'PRESENT') AS \"present\", " +
+                   "count(*) FILTER (WHERE i.status = 'AMBIGUOUS') AS \"ambiguous\", " +
+                   "count(*) FILTER (WHERE i.status = 'MISSING') AS \"missing\" " +
+                   "FROM analysis_item i " +
+                   "JOIN analysis a ON a.id = i.analysis_id " +
+                   "JOIN policy p ON p.id = a.policy_id " +
+                   "WHERE p.user_id = :userId " +
+                   "GROUP BY 1 ORDER BY 1",
+           nativeQuery = true)
+    List<ArticleStatusCount> countByArticleForUser(@Param("userId") Long userId);
+
+    /**
+     * Policy dell'utente con almeno un'analisi in cui l'elemento ha lo stato indicato (già normalizzato,
+     * vedi AnalysisItemStatus): indice (item_id, status), poi analysis -> policy.
+     */
+    @Query(value = "SELECT DISTINCT a.policy_id FROM analysis_item i " +
+                   "JOIN analysis a ON a.id = i.analysis_id " +
+                   "JOIN policy p ON p.id = a.policy_id " +
+                   "WHERE i.item_id = :itemId AND i.status = :status AND p.user_id = :userId " +
+                   "ORDER BY a.policy_id DESC",
+           nativeQuery = true)
+    List<Long> findPolicyIdsWithItemStatus(@Param("userId") Long userId,
+                                           @Param("itemId") String itemId,
+                                           @Param("status") String status);
+
+    /** Stati di un singolo elemento (es. "GDPR_13_2_a") sulle analisi dell'utente: indice (item_id, status). */
+    @Query("select i.status as status, count(i) as total from AnalysisItemEntry i " +
+           "where i.itemId = :itemId and i.analysis.policy.user.id = :userId " +
+           "group by i.status order by i.status")
+    List<ItemStatusTotal> countByItemForUser(@Param("userId") Long userId, @Param("itemId") String itemId);
+}
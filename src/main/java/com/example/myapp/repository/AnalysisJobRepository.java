@@ -0,0 +1,82 @@
+package com.example.myapp.repository;
+
+import com.example.myapp.dto.BatchItemProgress;
+import com.example.myapp.dto.QueuedJob;
+import com.example.myapp.entity.AnalysisJob;
+import com.example.myapp.entity.AnalysisJobStatus;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, UUID> {
+
+    @Query("select new com.example.myapp.dto.QueuedJob(j.id, u.id) from AnalysisJob j left join j.user u " +
+           "where j.status in :statuses order by j.createdAt asc")
+    List<QueuedJob> findQueuedByStatusIn(@Param("statuses") Collection<AnalysisJobStatus> statuses);
+
+    /** Stato dei job di un batch senza caricare testo e risultato. */
+    @Query("select new com.example.myapp.dto.BatchItemProgress(j.id, j.name, j.status, j.error, j.finishedAt) " +
+           "from AnalysisJob j where j.batch.id = :batchId order by j.createdAt asc, j.id asc")
+    List<BatchItemProgress> findProgressByBatchId(@Param("batchId") UUID batchId);
+
+    /** Passa il job da QUEUED a RUNNING solo se nessun altro worker l'ha già preso. */
+    @Transactional
+    @Modifying
+    @Query("update AnalysisJob j set j.status = com.example.myapp.entity.AnalysisJobStatus.RUNNING, j.startedAt = :now " +
+           "where j.id = :id and j.status = com.example.myapp.entity.AnalysisJobStatus.QUEUED")
+    int claim(@Param("id") UUID id, @Param("now") OffsetDateTime now);
+
+    /**
+     * Risultato di un job ancora RUNNING, scritto prima della chiusura del job: con persist=true nella
+     * stessa transazione di Policy e Analysis, così una nuova esecuzione sa che sono già salvate.
+     */
+    @Transactional
+    @Modifying
+    @Query("update AnalysisJob j set j.result = :result " +
+           "where j.id = :id and j.status = com.example.myapp.entity.AnalysisJobStatus.RUNNING")
+    int saveResult(@Param("id") UUID id, @Param("result") String result);
+
+    /** Chiude un job ancora RUNNING senza passare dall'entità (se il save del worker fallisce). */
+    @Transactional
+    @Modifying
+    @Query("update AnalysisJob j set j.status = :status, j.result = :result, j.error = :error, " +
+           "j.finishedAt = :finishedAt " +
+           "where j.id = :id and j.status = com.example.myapp.entity.AnalysisJobStatus.RUNNING")
+    int finish(@Param("id") UUID id, @Param("status") AnalysisJobStatus status, @Param("result") String result,
+               @Param("error") String error, @Param("finishedAt") OffsetDateTime finishedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update AnalysisJob j set j.status = :to, j.startedAt = null where j.status = :from")
+    int resetStatus(@Param("from") AnalysisJobStatus from, @Param("to") AnalysisJobStatus to);
+
+    /** Cancella al massimo {@code limit} job singoli (non di un batch) terminati prima di {@code before}. */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM analysis_job WHERE id IN (" +
+                   "SELECT id FROM analysis_job WHERE batch_id IS NULL AND finished_at < :before " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deleteFinishedBefore(@Param("before") OffsetDateTime before, @Param("limit") int limit);
+
+    /**
+     * Cancella al massimo {@code limit} batch creati prima di {@code before} i cui job sono tutti
+     * terminati prima di {@code before}; i job vengono cancellati in cascata (ON DELETE CASCADE).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM analysis_batch WHERE id IN (" +
+                   "SELECT b.id FROM analysis_batch b WHERE b.created_at < :before AND NOT EXISTS (" +
+                   "SELECT 1 FROM analysis_job j WHERE j.batch_id = b.id " +
+                   "AND (j.finished_at IS NULL OR j.finished_at >= :before)) " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deleteFinishedBatchesBefore(@Param("before") OffsetDateTime before, @Param("limit") int limit);
+}
@@ -1,10 +1,28 @@
 package com.example.myapp.repository;
 
+import com.example.myapp.dto.ItemStatusCount;
 import com.example.myapp.entity.Analysis;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface AnalysisRepository extends JpaRepository<Analysis, Long> {
     List<Analysis> findByPolicy_IdOrderByCreatedAtAsc(Long policyId);
+
+    /** Analisi senza voto precalcolato (righe precedenti a V9), per il backfill. */
+    @Query("select a from Analysis a where a.score is null order by a.id asc")
+    List<Analysis> findUnscored(Pageable pageable);
+
+    /** Conteggio per (elemento, stato) su tutte le analisi dell'utente, calcolato in PostgreSQL. */
+    @Query(value = "SELECT rtrim(e->>'id', '-') AS \"itemId\", lower(e->>'status') AS \"status\", count(*) AS \"count\" " +
+                   "FROM analysis a JOIN policy p ON p.id = a.policy_id " +
+                   "CROSS JOIN LATERAL jsonb_array_elements(" +
+                   "  CASE WHEN jsonb_typeof(a.data) = 'array' THEN a.data ELSE '[]'::jsonb END) e " +
+                   "WHERE p.user_id = :userId " +
+                   "GROUP BY 1, 2 ORDER BY 1, 2",
+           nativeQuery = true)
+    List<ItemStatusCount> countItemStatusesByUser(@Param("userId") Long userId);
 }
@@ -1,10 +1,57 @@
 package com.example.myapp.repository;
 
+import com.example.myapp.dto.PolicyPreview;
+import com.example.myapp.dto.PolicyScoreRow;
+import com.example.myapp.dto.PolicyVersion;
 import com.example.myapp.entity.Policy;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface PolicyRepository extends JpaRepository<Policy, Long> {
     List<Policy> findByUser_IdOrderByCreatedAtDesc(Long userId);
+
+    // SELECT COUNT(*) ... WHERE user_id = ? (idx_policy_user_created_at)
+    long countByUser_Id(Long userId);
+
+    /**
+     * Una pagina delle policy di un utente con il voto della prima analisi.
+     * Ordinamento (data o voto) e filtro sul voto minimo sono fatti in SQL.
+     */
+    @Query(value = "SELECT p.id AS \"id\", fa.score AS \"score\" " +
+                   "FROM policy p " +
+                   "LEFT JOIN LATERAL (SELECT a.score FROM analysis a WHERE a.policy_id = p.id " +
+                   "                   ORDER BY a.created_at ASC, a.id ASC LIMIT 1) fa ON TRUE " +
+                   "WHERE p.user_id = :userId AND COALESCE(fa.score, 0) >= :minScore " +
+                   "ORDER BY CASE WHEN :byScore THEN COALESCE(fa.score, -1) END DESC, p.created_at DESC, p.id DESC " +
+                   "LIMIT :limit OFFSET :offset",
+           nativeQuery = true)
+    List<PolicyScoreRow> findPageWithScore(@Param("userId") Long userId,
+                                           @Param("minScore") int minScore,
+                                           @Param("byScore") boolean byScore,
+                                           @Param("limit") int limit,
+                                           @Param("offset") long offset);
+
+    /** Anteprime (id, primi caratteri, data) delle policy indicate, senza caricare il contenuto completo. */
+    @Query("select new com.example.myapp.dto.PolicyPreview(p.id, p.preview, p.contentLength, p.createdAt) " +
+           "from Policy p where p.id in :ids")
+    List<PolicyPreview> findPreviewsByIds(@Param("ids") Collection<Long> ids);
+
+    /** Ultime policy dell'utente con il testo, candidate come versione precedente di un nuovo testo. */
+    @Query("select p from Policy p where p.user.id = :userId order by p.createdAt desc, p.id desc")
+    List<Policy> findRecent(@Param("userId") Long userId, Pageable pageable);
+
+    /** Policy precedenti a V16 con il testo ancora non compresso (idx_policy_content_uncompressed). */
+    @Query("select p from Policy p where p.legacyContent is not null order by p.id asc")
+    List<Policy> findUncompressed(Pageable pageable);
+
+    /** Tutte le versioni della catena con radice {@code rootId}, in ordine (idx_policy_root_version). */
+    @Query("select new com.example.myapp.dto.PolicyVersion(p.id, p.previousVersionId, p.version, p.createdAt) " +
+           "from Policy p where (p.id = :rootId or p.rootId = :rootId) and p.user.id = :userId " +
+           "order by p.version asc, p.createdAt asc")
+    List<PolicyVersion> findVersions(@Param("rootId") Long rootId, @Param("userId") Long userId);
 }
@@ -1,14 +1,55 @@
 package com.example.myapp.repository;
 
+import com.example.myapp.dto.StoredRefreshToken;
 import com.example.myapp.entity.RefreshToken;
-import com.example.myapp.entity.User;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByTokenHash(String tokenHash);
-    List<RefreshToken> findByUserAndRevokedFalseAndExpiresAtAfter(User user, OffsetDateTime now);
+    boolean existsByTokenHash(byte[] tokenHash);
+
+    @Query("select new com.example.myapp.dto.StoredRefreshToken(t.user.id, t.tokenHash, t.issuedAt, t.expiresAt, t.revokedAt) " +
+           "from RefreshToken t where t.user.id = :userId and t.revoked = false and t.expiresAt > :now")
+    List<StoredRefreshToken> findActiveByUserId(@Param("userId") Long userId, @Param("now") OffsetDateTime now);
+
+    /** Revoca il token solo se ancora attivo; 0 se sconosciuto, già revocato o scaduto. */
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true, t.revokedAt = :now " +
+           "where t.tokenHash = :hash and t.revoked = false and t.expiresAt > :now")
+    int revokeIfActive(@Param("hash") byte[] tokenHash, @Param("now") OffsetDateTime now);
+
+    /** Revoca il token se non lo è già: un secondo logout non sposta revokedAt. */
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true, t.revokedAt = :now " +
+           "where t.tokenHash = :hash and t.revoked = false")
+    int revokeByTokenHash(@Param("hash") byte[] tokenHash, @Param("now") OffsetDateTime now);
+
+    /**
+     * Cancella al massimo {@code limit} token scaduti prima di {@code before}, in una transazione breve.
+     * SKIP LOCKED: le righe bloccate da un refresh/logout in corso restano per il giro successivo.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_token WHERE id IN (" +
+                   "SELECT id FROM refresh_token WHERE expires_at < :before " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deleteExpired(@Param("before") OffsetDateTime before, @Param("limit") int limit);
+
+    /** Come {@link #deleteExpired}, per i token revocati prima di {@code revokedBefore}. */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_token WHERE id IN (" +
+                   "SELECT id FROM refresh_token WHERE revoked AND revoked_at < :revokedBefore " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deleteRevoked(@Param("revokedBefore") OffsetDateTime revokedBefore, @Param("limit") int limit);
 }
@@ -1,10 +1,30 @@
 package com.example.myapp.repository;
 
 import com.example.myapp.entity.User;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    /** Utente + ruolo in una sola query (login/refresh leggono sempre il nome del ruolo). */
+    @Query("select u from User u join fetch u.role where u.username = :username")
+    Optional<User> findWithRoleByUsername(@Param("username") String username);
+
+    /** Aggiorna l'hash solo se nel frattempo non è stato cambiato da un'altra richiesta. */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.passwordHash = :newHash where u.id = :id and u.passwordHash = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    /** Solo gli id esistenti tra quelli dati, senza caricare gli utenti. */
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
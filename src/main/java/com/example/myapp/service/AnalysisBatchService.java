@@ -0,0 +1,151 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisBatchResponse;
+import com.example.myapp.dto.BatchItemProgress;
+import com.example.myapp.dto.BatchItemRequest;
+import com.example.myapp.entity.AnalysisBatch;
+import com.example.myapp.entity.AnalysisJob;
+import com.example.myapp.entity.User;
+import com.example.myapp.repository.AnalysisBatchRepository;
+import com.example.myapp.repository.AnalysisJobRepository;
+import com.example.myapp.repository.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Analisi in blocco: ogni testo del batch diventa un analysis_job (persist=true) che passa
+ * dalla coda equa di {@link AnalysisJobService} e, al termine, viene salvato con
+ * addPolicyAndAnalysis. Il batch espone l'avanzamento per elemento.
+ */
+@Service
+public class AnalysisBatchService {
+
+    private final AnalysisBatchRepository batchRepo;
+    private final AnalysisJobRepository jobRepo;
+    private final UserRepository userRepo;
+    private final AnalysisJobService jobService;
+    private final TransactionTemplate tx;
+    private final int maxItems;
+    private final long maxArchiveBytes;
+
+    public AnalysisBatchService(AnalysisBatchRepository batchRepo,
+                                AnalysisJobRepository jobRepo,
+                                UserRepository userRepo,
+                                AnalysisJobService jobService,
+                                PlatformTransactionManager txManager,
+                                @Value("${app.analyzer.batch.max-items:500}") int maxItems,
+                                @Value("${app.analyzer.batch.max-archive-bytes:52428800}") long maxArchiveBytes) {
+        this.batchRepo = batchRepo;
+        this.jobRepo = jobRepo;
+        this.userRepo = userRepo;
+        this.jobService = jobService;
+        this.tx = new TransactionTemplate(txManager);
+        this.maxItems = maxItems;
+        this.maxArchiveBytes = maxArchiveBytes;
+    }
+
+    public AnalysisBatchResponse submit(List<BatchItemRequest> items, Long userId) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (items == null || items.isEmpty()) throw new IllegalArgumentException("at least one text is required");
+        if (items.size() > maxItems) throw new IllegalArgumentException("too many texts (max " + maxItems + ")");
+        for (int i = 0; i < items.size(); i++) {
+            BatchItemRequest item = items.get(i);
+            if (item == null || item.text() == null || item.text().isBlank()) {
+                throw new IllegalArgumentException("text is required (item " + i + ")");
+            }
+        }
+
+        User user = userRepo.findById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("User not found: " + userId));
+
+        // batch e job salvati insieme; in coda solo dopo il commit, altrimenti i worker non li vedrebbero
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        AnalysisBatch batch = tx.execute(status -> {
+            AnalysisBatch b = batchRepo.save(new AnalysisBatch(user, items.size(), now));
+            List<AnalysisJob> jobs = new ArrayList<>(items.size());
+            for (BatchItemRequest item : items) {
+                jobs.add(new AnalysisJob(user, b, item.name(), item.text(), now));
+            }
+            jobRepo.saveAll(jobs);
+            return b;
+        });
+
+        List<BatchItemProgress> progress = jobRepo.findProgressByBatchId(batch.getId());
+        jobService.enqueue(userId, progress.stream().map(BatchItemProgress::jobId).toList());
+        return toResponse(batch, progress);
+    }
+
+    /** Archivio zip: ogni file .txt (UTF-8) è un testo del batch, con il nome del file come name. */
+    public AnalysisBatchResponse submitArchive(InputStream zip, Long userId) throws IOException {
+        List<BatchItemRequest> items = new ArrayList<>();
+        long totalBytes = 0;
+        try (ZipInputStream in = new ZipInputStream(zip, StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.toLowerCase(Locale.ROOT).endsWith(".txt")
+                        || name.startsWith("__MACOSX/") || name.contains("/.")) {
+                    continue;
+                }
+                if (items.size() >= maxItems) throw new IllegalArgumentException("too many texts (max " + maxItems + ")");
+
+                // dimensione letta davvero, non quella dichiarata nell'header (zip bomb)
+                byte[] content = readLimited(in, maxArchiveBytes - totalBytes);
+                totalBytes += content.length;
+                String text = new String(content, StandardCharsets.UTF_8);
+                if (!text.isBlank()) items.add(new BatchItemRequest(name, text));
+            }
+        }
+        return submit(items, userId);
+    }
+
+    public AnalysisBatchResponse getBatch(UUID batchId, Long userId) {
+        if (batchId == null) throw new IllegalArgumentException("batchId is required");
+        AnalysisBatch batch = batchRepo.findById(batchId)
+                .orElseThrow(() -> new EntityNotFoundException("batch not found: " + batchId));
+        // come per i job: il batch di un altro utente non esiste
+        if (!batch.getUser().getId().equals(userId)) throw new EntityNotFoundException("batch not found: " + batchId);
+        return toResponse(batch, jobRepo.findProgressByBatchId(batchId));
+    }
+
+    private static byte[] readLimited(InputStream in, long limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            if (out.size() + n > limit) throw new IllegalArgumentException("archive too large");
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static AnalysisBatchResponse toResponse(AnalysisBatch batch, List<BatchItemProgress> items) {
+        int queued = 0, running = 0, done = 0, failed = 0;
+        for (BatchItemProgress p : items) {
+            switch (p.status()) {
+                case QUEUED -> queued++;
+                case RUNNING -> running++;
+                case DONE -> done++;
+                case FAILED -> failed++;
+            }
+        }
+        return new AnalysisBatchResponse(batch.getId(), batch.getTotal(), queued, running, done, failed,
+                batch.getCreatedAt(), items);
+    }
+}
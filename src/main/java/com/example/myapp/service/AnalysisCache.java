@@ -0,0 +1,178 @@
+package com.example.myapp.service;
+
+import com.example.myapp.entity.AnalysisCacheEntry;
+import com.example.myapp.repository.AnalysisCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Cache dei risultati dell'analyzer indicizzata per contenuto: la chiave è lo SHA-256
+ * del testo normalizzato (NFC, spazi compressi) più la versione di checklist.json.
+ * Due livelli: LRU in memoria limitata per numero di voci e caratteri totali,
+ * poi la tabella analysis_cache. Hit/miss sono esposti come metrica
+ * analyzer.cache.lookups (tag result=memory|database|miss).
+ * Un errore del database non fa mai fallire un'analisi: in lettura vale come miss.
+ * All'avvio vengono cancellate le righe di altre versioni della checklist, che non verrebbero più lette.
+ */
+@Slf4j
+@Component
+public class AnalysisCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int PURGE_BATCH = 1000;
+
+    private final AnalysisCacheRepository cacheRepo;
+    private final AnalyzerToolBundle toolBundle;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxChars;
+
+    // access-order = LRU; sincronizzata su se stessa
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryChars;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public AnalysisCache(AnalysisCacheRepository cacheRepo,
+                         AnalyzerToolBundle toolBundle,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.analyzer.cache.enabled:true}") boolean enabled,
+                         @Value("${app.analyzer.cache.max-entries:500}") int maxEntries,
+                         @Value("${app.analyzer.cache.max-chars:20000000}") long maxChars) {
+        this.cacheRepo = cacheRepo;
+        this.toolBundle = toolBundle;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+
+        this.memoryHits = Counter.builder("analyzer.cache.lookups").tag("result", "memory").register(meterRegistry);
+        this.databaseHits = Counter.builder("analyzer.cache.lookups").tag("result", "database").register(meterRegistry);
+        this.misses = Counter.builder("analyzer.cache.lookups").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("analyzer.cache.memory.entries", this, c -> c.memorySize()).register(meterRegistry);
+        Gauge.builder("analyzer.cache.memory.chars", this, c -> c.memoryChars()).register(meterRegistry);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** Chiave di cache per il testo dato (testo normalizzato + versione checklist). */
+    public String keyFor(String policyText) {
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(policyText, Normalizer.Form.NFC))
+                .replaceAll(" ")
+                .trim();
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(toolBundle.checklistVersion().getBytes(StandardCharsets.US_ASCII));
+            md.update((byte) '\n');
+            md.update(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        if (!enabled) return Optional.empty();
+
+        String hit;
+        synchronized (memory) {
+            hit = memory.get(key);
+        }
+        if (hit != null) {
+            memoryHits.increment();
+            return Optional.of(hit);
+        }
+
+        Optional<String> stored;
+        try {
+            stored = cacheRepo.findById(key).map(AnalysisCacheEntry::getData);
+        } catch (Exception e) {
+            // la cache non deve mai far fallire un'analisi: si analizza come in un miss
+            log.warn("Cannot read analysis cache entry {}", key, e);
+            stored = Optional.empty();
+        }
+        if (stored.isPresent()) {
+            databaseHits.increment();
+            remember(key, stored.get());
+        } else {
+            misses.increment();
+        }
+        return stored;
+    }
+
+    public void put(String key, String resJson) {
+        if (!enabled || resJson == null || resJson.isBlank()) return;
+        remember(key, resJson);
+        try {
+            cacheRepo.insertIfAbsent(key, toolBundle.checklistVersion(), resJson);
+        } catch (Exception e) {
+            // la cache non deve mai far fallire un'analisi riuscita
+            log.warn("Cannot persist analysis cache entry {}", key, e);
+        }
+    }
+
+    /** Cancella, a blocchi di PURGE_BATCH righe, le voci salvate con un'altra versione di checklist.json. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeOtherVersions() {
+        if (!enabled) return;
+        try {
+            String version = toolBundle.checklistVersion();
+            int total = 0;
+            int done;
+            do {
+                done = cacheRepo.deleteOtherVersions(version, PURGE_BATCH);
+                total += done;
+            } while (done == PURGE_BATCH);
+            if (total > 0) log.info("Deleted {} analysis cache entries of previous checklist versions", total);
+        } catch (Exception e) {
+            log.warn("Cannot purge analysis cache entries of previous checklist versions", e);
+        }
+    }
+
+    private void remember(String key, String resJson) {
+        if (resJson.length() > maxChars) return;
+        synchronized (memory) {
+            String previous = memory.put(key, resJson);
+            if (previous != null) memoryChars -= previous.length();
+            memoryChars += resJson.length();
+
+            // evict least-recently-used entries until both limits are respected
+            Iterator<Map.Entry<String, String>> it = memory.entrySet().iterator();
+            while ((memory.size() > maxEntries || memoryChars > maxChars) && it.hasNext()) {
+                Map.Entry<String, String> eldest = it.next();
+                memoryChars -= eldest.getValue().length();
+                it.remove();
+            }
+        }
+    }
+
+    private int memorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    private long memoryChars() {
+        synchronized (memory) {
+            return memoryChars;
+        }
+    }
+}
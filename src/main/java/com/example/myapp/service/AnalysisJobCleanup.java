@@ -0,0 +1,54 @@
+package com.example.myapp.service;
+
+import com.example.myapp.repository.AnalysisJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.function.IntSupplier;
+
+/**
+ * Cancella i job asincroni terminati da più di app.analyzer.jobs.retention, con il testo inviato
+ * e il risultato, e i batch i cui job sono tutti terminati da allora. A blocchi di
+ * app.analyzer.jobs.cleanup.batch-size righe, ognuno nella sua transazione.
+ * I risultati dei batch restano salvati come Policy + Analysis.
+ */
+@Slf4j
+@Component
+public class AnalysisJobCleanup {
+
+    private final AnalysisJobRepository jobRepo;
+    private final Duration retention;
+    private final int batchSize;
+
+    public AnalysisJobCleanup(AnalysisJobRepository jobRepo,
+                              @Value("${app.analyzer.jobs.retention:P7D}") Duration retention,
+                              @Value("${app.analyzer.jobs.cleanup.batch-size:500}") int batchSize) {
+        this.jobRepo = jobRepo;
+        this.retention = retention;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(initialDelayString = "${app.analyzer.jobs.cleanup.initial-delay:PT1M}",
+               fixedDelayString = "${app.analyzer.jobs.cleanup.interval:PT1H}")
+    public void cleanup() {
+        OffsetDateTime before = OffsetDateTime.now(ZoneOffset.UTC).minus(retention);
+        int jobs = drain(() -> jobRepo.deleteFinishedBefore(before, batchSize));
+        int batches = drain(() -> jobRepo.deleteFinishedBatchesBefore(before, batchSize));
+        if (jobs + batches > 0) log.info("Deleted {} finished analysis jobs and {} batches", jobs, batches);
+    }
+
+    private int drain(IntSupplier deleteBatch) {
+        int total = 0;
+        int done;
+        do {
+            done = deleteBatch.getAsInt();
+            total += done;
+        } while (done == batchSize);
+        return total;
+    }
+}
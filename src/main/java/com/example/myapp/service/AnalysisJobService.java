@@ -0,0 +1,301 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisJobResponse;
+import com.example.myapp.dto.QueuedJob;
+import com.example.myapp.dto.SaveResultRequest;
+import com.example.myapp.entity.AnalysisJob;
+import com.example.myapp.entity.AnalysisJobStatus;
+import com.example.myapp.entity.User;
+import com.example.myapp.repository.AnalysisJobRepository;
+import com.example.myapp.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analisi asincrone: submit restituisce subito l'id del job, un pool limitato di worker
+ * esegue l'analyzer e il client fa polling (o long-polling) sullo stato.
+ * I job sono salvati su DB (tabella analysis_job), quindi all'avvio quelli ancora
+ * QUEUED/RUNNING vengono rimessi in coda. La coda è equa tra utenti: ogni worker libero
+ * prende il prossimo job dell'utente successivo (round-robin), così un batch di mille
+ * testi non blocca le richieste singole degli altri.
+ */
+@Slf4j
+@Service
+public class AnalysisJobService {
+
+    private final AnalysisJobRepository jobRepo;
+    private final UserRepository userRepo;
+    private final AnalyzerService analyzerService;
+    private final PolicyService policyService;
+    private final TransactionTemplate tx;
+    private final Duration maxWait;
+    private final ThreadPoolExecutor workers;
+    private final FairQueue queue = new FairQueue();
+
+    // job id -> future completata dal worker quando il job termina (usata dal long-polling);
+    // la voce sparisce quando il job termina o quando l'ultimo client in attesa va in timeout
+    private final ConcurrentMap<UUID, Waiters> completions = new ConcurrentHashMap<>();
+
+    public AnalysisJobService(AnalysisJobRepository jobRepo,
+                              UserRepository userRepo,
+                              AnalyzerService analyzerService,
+                              PolicyService policyService,
+                              PlatformTransactionManager txManager,
+                              @Value("${app.analyzer.jobs.workers:2}") int workerCount,
+                              @Value("${app.analyzer.jobs.max-wait:PT60S}") Duration maxWait) {
+        this.jobRepo = jobRepo;
+        this.userRepo = userRepo;
+        this.analyzerService = analyzerService;
+        this.policyService = policyService;
+        this.tx = new TransactionTemplate(txManager);
+        this.maxWait = maxWait;
+
+        int size = Math.max(1, workerCount);
+        AtomicInteger seq = new AtomicInteger();
+        // la coda dell'executor contiene solo "gettoni": il job da eseguire viene scelto
+        // dalla FairQueue quando un worker si libera, e il testo riletto dal DB
+        this.workers = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "analysis-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /* ---------- Submit ---------- */
+
+    public AnalysisJobResponse submit(String policyText, Long userId) {
+        if (policyText == null || policyText.isBlank()) throw new IllegalArgumentException("text is required");
+
+        User user = null;
+        if (userId != null) {
+            user = userRepo.findById(userId)
+                    .orElseThrow(() -> new EntityNotFoundException("User not found: " + userId));
+        }
+
+        AnalysisJob job = jobRepo.save(new AnalysisJob(user, policyText, OffsetDateTime.now(ZoneOffset.UTC)));
+        dispatch(job.getId(), userId);
+        return toResponse(job);
+    }
+
+    /* ---------- Status / result ---------- */
+
+    public AnalysisJobResponse getJob(UUID jobId, Long userId) {
+        return toResponse(loadOwned(jobId, userId));
+    }
+
+    /**
+     * Long-polling: se il job non è ancora terminato aspetta al massimo {@code wait}
+     * (limitato da app.analyzer.jobs.max-wait) senza occupare un thread della richiesta.
+     */
+    public CompletableFuture<AnalysisJobResponse> awaitJob(UUID jobId, Long userId, Duration wait) {
+        AnalysisJobResponse current = getJob(jobId, userId);
+        if (isTerminal(current) || wait == null || wait.isZero() || wait.isNegative()) {
+            return CompletableFuture.completedFuture(current);
+        }
+
+        Waiters waiters = completions.compute(jobId, (k, w) -> {
+            Waiters registered = w != null ? w : new Waiters();
+            registered.count++;
+            return registered;
+        });
+        // ricontrolla dopo la registrazione: il worker potrebbe aver finito nel frattempo
+        AnalysisJobResponse recheck = getJob(jobId, userId);
+        if (isTerminal(recheck)) {
+            release(jobId, waiters);
+            return CompletableFuture.completedFuture(recheck);
+        }
+
+        Duration effective = wait.compareTo(maxWait) > 0 ? maxWait : wait;
+        // copy(): il timeout di un client non deve completare la future condivisa con gli altri.
+        // Un job mai eseguito qui (preso da un'altra istanza, perso in un arresto) non completa
+        // la future: è il timeout dell'ultimo client a togliere la voce.
+        return waiters.done.copy()
+                .completeOnTimeout(recheck, effective.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((r, e) -> release(jobId, waiters));
+    }
+
+    /* ---------- Worker ---------- */
+
+    /** Mette in coda job già salvati (QUEUED) dello stesso utente, es. quelli di un batch. */
+    void enqueue(Long userId, List<UUID> jobIds) {
+        jobIds.forEach(id -> dispatch(id, userId));
+    }
+
+    private void dispatch(UUID jobId, Long userId) {
+        queue.add(userId, jobId);
+        workers.execute(this::runNext);
+    }
+
+    private void runNext() {
+        UUID jobId = queue.poll();
+        if (jobId != null) run(jobId);
+    }
+
+    private void run(UUID jobId) {
+        if (jobRepo.claim(jobId, OffsetDateTime.now(ZoneOffset.UTC)) == 0) {
+            return; // già preso da un altro worker o non più in coda
+        }
+        AnalysisJob job = jobRepo.findById(jobId).orElse(null);
+        if (job == null) return;
+
+        try {
+            if (!execute(job)) return;
+            job.setFinishedAt(OffsetDateTime.now(ZoneOffset.UTC));
+            job = saveFinished(job);
+        } finally {
+            // anche se il job non è stato chiuso: i client in attesa ricevono lo stato attuale
+            Waiters waiting = completions.remove(jobId);
+            if (waiting != null) waiting.done.complete(toResponse(job));
+        }
+    }
+
+    /** Esegue l'analisi e imposta lo stato finale; false se interrotta dall'arresto dell'applicazione. */
+    private boolean execute(AnalysisJob job) {
+        try {
+            // risultato già salvato da un'esecuzione interrotta prima della chiusura del job:
+            // niente seconda analisi e, con persist=true, niente Policy duplicata
+            if (job.getResult() == null) {
+                String result = analyzerService.analyze(job.getInput());
+                if (job.isPersist()) {
+                    // getId() sul proxy lazy non richiede una sessione aperta
+                    Long owner = job.getUser() != null ? job.getUser().getId() : null;
+                    tx.executeWithoutResult(status -> {
+                        policyService.addPolicyAndAnalysis(new SaveResultRequest(job.getInput(), result, owner));
+                        jobRepo.saveResult(job.getId(), result);
+                    });
+                }
+                job.setResult(result);
+            }
+            job.setStatus(AnalysisJobStatus.DONE);
+        } catch (Exception e) {
+            if (workers.isShutdown()) {
+                // arresto dell'applicazione: il job resta RUNNING e viene ripreso al prossimo avvio
+                log.info("Analysis job {} interrupted by shutdown", job.getId());
+                return false;
+            }
+            log.warn("Analysis job {} failed", job.getId(), e);
+            job.setStatus(AnalysisJobStatus.FAILED);
+            job.setError(Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()));
+        }
+        return true;
+    }
+
+    /**
+     * Salva lo stato finale; se il save fallisce riprova con un UPDATE condizionato, altrimenti il job
+     * resterebbe RUNNING fino al prossimo avvio (e verrebbe rieseguito).
+     */
+    private AnalysisJob saveFinished(AnalysisJob job) {
+        try {
+            return jobRepo.save(job);
+        } catch (RuntimeException e) {
+            log.error("Cannot save analysis job {}, retrying with a direct update", job.getId(), e);
+            try {
+                jobRepo.finish(job.getId(), job.getStatus(), job.getResult(), job.getError(), job.getFinishedAt());
+            } catch (RuntimeException again) {
+                log.error("Analysis job {} left RUNNING, it will be resumed on the next start", job.getId(), again);
+            }
+            return job;
+        }
+    }
+
+    /** Un client in meno in attesa di {@code jobId}; l'ultimo toglie la voce (se è ancora la stessa). */
+    private void release(UUID jobId, Waiters waiters) {
+        completions.computeIfPresent(jobId, (k, w) -> w != waiters || --w.count > 0 ? w : null);
+    }
+
+    /** Numero di job con client in long-polling (per i test). */
+    int waitingJobs() {
+        return completions.size();
+    }
+
+    /* ---------- Recovery / shutdown ---------- */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingJobs() {
+        // i job RUNNING sono stati interrotti da un arresto: tornano in coda
+        int resumed = jobRepo.resetStatus(AnalysisJobStatus.RUNNING, AnalysisJobStatus.QUEUED);
+        List<QueuedJob> queued = jobRepo.findQueuedByStatusIn(List.of(AnalysisJobStatus.QUEUED));
+        queued.forEach(j -> dispatch(j.id(), j.userId()));
+        if (!queued.isEmpty()) log.info("Re-queued {} analysis jobs ({} were running)", queued.size(), resumed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /* ---------- Helpers ---------- */
+
+    private AnalysisJob loadOwned(UUID jobId, Long userId) {
+        if (jobId == null) throw new IllegalArgumentException("jobId is required");
+        AnalysisJob job = jobRepo.findById(jobId)
+                .orElseThrow(() -> new EntityNotFoundException("job not found: " + jobId));
+        // un utente non deve poter vedere il job (e il risultato) di un altro
+        Long owner = job.getUser() != null ? job.getUser().getId() : null;
+        if (owner != null && !owner.equals(userId)) throw new EntityNotFoundException("job not found: " + jobId);
+        return job;
+    }
+
+    private static boolean isTerminal(AnalysisJobResponse r) {
+        return AnalysisJobStatus.valueOf(r.status()).isTerminal();
+    }
+
+    private static AnalysisJobResponse toResponse(AnalysisJob job) {
+        return new AnalysisJobResponse(job.getId(), job.getStatus().name(), job.getResult(), job.getError(),
+                job.getCreatedAt(), job.getFinishedAt());
+    }
+
+    /** Future condivisa dai client in attesa dello stesso job; count modificato solo dentro compute. */
+    private static final class Waiters {
+        final CompletableFuture<AnalysisJobResponse> done = new CompletableFuture<>();
+        int count;
+    }
+
+    /** Una FIFO per utente, servite a turno; i job anonimi condividono la stessa FIFO. */
+    static final class FairQueue {
+        private final Map<Long, ArrayDeque<UUID>> perUser = new HashMap<>();
+        private final ArrayDeque<Long> turns = new ArrayDeque<>();
+
+        synchronized void add(Long userId, UUID jobId) {
+            Long key = userId != null ? userId : 0L;
+            ArrayDeque<UUID> fifo = perUser.get(key);
+            if (fifo == null) {
+                fifo = new ArrayDeque<>();
+                perUser.put(key, fifo);
+                turns.addLast(key);
+            }
+            fifo.addLast(jobId);
+        }
+
+        synchronized UUID poll() {
+            Long key = turns.pollFirst();
+            if (key == null) return null;
+            ArrayDeque<UUID> fifo = perUser.get(key);
+            UUID next = fifo.pollFirst();
+            if (fifo.isEmpty()) perUser.remove(key);
+            else turns.addLast(key); // in fondo al giro: tocca agli altri utenti
+            return next;
+        }
+    }
+}
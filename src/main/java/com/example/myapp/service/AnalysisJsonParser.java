@@ -0,0 +1,101 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisItem;
+import com.example.myapp.dto.AnalysisItemStatus;
+import com.example.myapp.dto.AnalysisResult;
+import com.example.myapp.dto.AnalysisScore;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lettura dell'analysis.json ([{id, status, reasoning}, ...]) a livello di token Jackson,
+ * in un solo passaggio e senza costruire l'albero JSON. Lo stato viene letto solo dal
+ * campo "status" (case-insensitive), quindi un "PRESENT" dentro reasoning non conta.
+ */
+public final class AnalysisJsonParser {
+    private AnalysisJsonParser() {}
+
+    // thread-safe, riusabile
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** Elementi tipizzati + conteggi e voto. */
+    public static AnalysisResult parse(String resJson) {
+        List<AnalysisItem> items = new ArrayList<>();
+        Counts counts = new Counts();
+        walk(resJson, true, (id, status, reasoning) -> {
+            items.add(new AnalysisItem(id, status, reasoning));
+            counts.add(status);
+        });
+        return new AnalysisResult(List.copyOf(items), counts.toScore());
+    }
+
+    /** Solo conteggi e voto: i testi di id/reasoning non vengono nemmeno materializzati. */
+    public static AnalysisScore score(String resJson) {
+        Counts counts = new Counts();
+        walk(resJson, false, (id, status, reasoning) -> counts.add(status));
+        return counts.toScore();
+    }
+
+    @FunctionalInterface
+    private interface ItemVisitor {
+        void visit(String id, AnalysisItemStatus status, String reasoning);
+    }
+
+    private static void walk(String resJson, boolean keepText, ItemVisitor visitor) {
+        if (resJson == null || resJson.isBlank()) throw new IllegalArgumentException("Analysis JSON is empty");
+        try (JsonParser p = JSON.createParser(resJson)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Analysis JSON must be an array");
+            }
+            JsonToken t;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (t == null) throw new IllegalArgumentException("Analysis JSON is truncated");
+                if (t != JsonToken.START_OBJECT) {
+                    p.skipChildren(); // elemento non oggetto: ignorato
+                    continue;
+                }
+                String id = null;
+                String reasoning = null;
+                AnalysisItemStatus status = AnalysisItemStatus.UNKNOWN;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    if (p.nextToken() != JsonToken.VALUE_STRING) {
+                        p.skipChildren(); // campi non stringa (o sconosciuti annidati) ignorati
+                        continue;
+                    }
+                    switch (field) {
+                        case "status" -> status = AnalysisItemStatus.from(p.getText());
+                        case "id" -> { if (keepText) id = p.getText(); }
+                        case "reasoning" -> { if (keepText) reasoning = p.getText(); }
+                        default -> { /* campo extra: ignorato */ }
+                    }
+                }
+                visitor.visit(id, status, reasoning);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid analysis JSON", e);
+        }
+    }
+
+    private static final class Counts {
+        int present, ambiguous, missing;
+
+        void add(AnalysisItemStatus s) {
+            switch (s) {
+                case PRESENT -> present++;
+                case AMBIGUOUS -> ambiguous++;
+                case MISSING -> missing++;
+                default -> { /* NOT_REQUIRED / UNKNOWN non entrano nel voto */ }
+            }
+        }
+
+        AnalysisScore toScore() {
+            return new AnalysisScore(present, ambiguous, missing, AnalysisScoring.voto(present, ambiguous, missing));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisItemStatus;
+import com.example.myapp.dto.ArticleCompliance;
+import com.example.myapp.dto.ItemStatusCount;
+import com.example.myapp.dto.ItemStatusTotal;
+import com.example.myapp.repository.AnalysisItemRepository;
+import com.example.myapp.repository.AnalysisRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Report sulle analisi di un utente calcolati in PostgreSQL: nessuna riga viene caricata e
+ * parsata in Java. I conteggi complessivi aggregano il JSONB di analysis.data; ricerca e
+ * statistiche per elemento/articolo usano la tabella normalizzata analysis_item, dove id e
+ * stato hanno già la forma di AnalysisItemStatus (così i report concordano tra loro).
+ */
+@Service
+public class AnalysisReportService {
+
+    private final AnalysisRepository analysisRepo;
+    private final AnalysisItemRepository analysisItemRepo;
+
+    public AnalysisReportService(AnalysisRepository analysisRepo, AnalysisItemRepository analysisItemRepo) {
+        this.analysisRepo = analysisRepo;
+        this.analysisItemRepo = analysisItemRepo;
+    }
+
+    /** Conteggi per elemento della checklist e stato su tutte le analisi dell'utente. */
+    public List<ItemStatusCount> itemStatusCounts(Long userId) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        return analysisRepo.countItemStatusesByUser(userId);
+    }
+
+    /**
+     * Id delle policy dell'utente in cui l'elemento ha lo stato indicato, es. ("GDPR_13_2_a", "missing").
+     * Lo stato accetta le stesse forme dell'analyzer ("Present", "not_required", ...).
+     *
+     * @throws IllegalArgumentException se lo stato non è riconosciuto
+     */
+    public List<Long> policiesWithItemStatus(Long userId, String itemId, String status) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (itemId == null || itemId.isBlank()) throw new IllegalArgumentException("itemId is required");
+        if (status == null || status.isBlank()) throw new IllegalArgumentException("status is required");
+
+        AnalysisItemStatus s = AnalysisItemStatus.from(status);
+        if (s == AnalysisItemStatus.UNKNOWN && !status.strip().equalsIgnoreCase("unknown")) {
+            throw new IllegalArgumentException("Unknown status: " + status);
+        }
+        // in analysis_item l'id è salvato senza il "-" finale
+        String id = itemId.strip();
+        if (id.endsWith("-")) id = id.substring(0, id.length() - 1);
+        return analysisItemRepo.findPolicyIdsWithItemStatus(userId, id, s.name());
+    }
+
+    /** Tasso di conformità per articolo GDPR (es. "GDPR_13") su tutte le policy dell'utente. */
+    public List<ArticleCompliance> articleCompliance(Long userId) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        return analysisItemRepo.countByArticleForUser(userId).stream().map(row -> {
+            long present = row.getPresent();
+            long ambiguous = row.getAmbiguous();
+            long missing = row.getMissing();
+            long assessed = present + ambiguous + missing;
+            double rate = assessed == 0 ? 0 : (double) present / assessed;
+            return new ArticleCompliance(row.getArticle(), present, ambiguous, missing, rate);
+        }).toList();
+    }
+
+    /** Quante analisi dell'utente hanno ciascuno stato per l'elemento indicato. */
+    public List<ItemStatusTotal> itemStatusTotals(Long userId, String itemId) {
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (itemId == null || itemId.isBlank()) throw new IllegalArgumentException("itemId is required");
+        String id = itemId.strip();
+        if (id.endsWith("-")) id = id.substring(0, id.length() - 1);
+        return analysisItemRepo.countByItemForUser(userId, id);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisScore;
+import com.example.myapp.entity.Analysis;
+import com.example.myapp.repository.AnalysisRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Calcola voto e conteggi per le analisi salvate prima di V9 (score NULL),
+ * a blocchi di app.analysis.backfill.batch-size righe, ognuno nella sua transazione.
+ */
+@Slf4j
+@Component
+public class AnalysisScoreBackfill {
+
+    private final AnalysisRepository analysisRepo;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public AnalysisScoreBackfill(AnalysisRepository analysisRepo,
+                                 PlatformTransactionManager txManager,
+                                 @Value("${app.analysis.backfill.batch-size:200}") int batchSize) {
+        this.analysisRepo = analysisRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(initialDelayString = "${app.analysis.backfill.initial-delay:PT10S}",
+               fixedDelayString = "${app.analysis.backfill.interval:PT1H}")
+    public void backfill() {
+        int total = 0;
+        int done;
+        do {
+            done = tx.execute(status -> {
+                List<Analysis> batch = analysisRepo.findUnscored(PageRequest.of(0, batchSize));
+                // le entity sono managed: l'UPDATE parte al commit
+                batch.forEach(this::rescore);
+                return batch.size();
+            });
+            total += done;
+        } while (done == batchSize);
+
+        if (total > 0) log.info("Backfilled score for {} analyses", total);
+    }
+
+    private void rescore(Analysis a) {
+        try {
+            a.applyScore(AnalysisScoring.score(a.getData()));
+        } catch (IllegalArgumentException e) {
+            // JSON non leggibile: voto 0, altrimenti la riga verrebbe ripresa a ogni giro
+            log.warn("Analysis {} has invalid JSON, scoring it 0", a.getId());
+            a.applyScore(new AnalysisScore(0, 0, 0, 0));
+        }
+    }
+}
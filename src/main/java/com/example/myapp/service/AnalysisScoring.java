@@ -0,0 +1,22 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisScore;
+
+/**
+ * Calcolo del voto di un'analisi: (present + 0.25 * ambiguous) / (present + ambiguous + missing),
+ * scalato a 0-10 e arrotondato per eccesso. Gli elementi "not required" non contano.
+ */
+public final class AnalysisScoring {
+    private AnalysisScoring() {}
+
+    /** @throws IllegalArgumentException se il JSON non è un array di elementi valido */
+    public static AnalysisScore score(String resJson) {
+        return AnalysisJsonParser.score(resJson);
+    }
+
+    static int voto(int present, int ambiguos, int missings) {
+        int max = missings + ambiguos + present;
+        if (max == 0) return 0;
+        return (int)Math.ceil((((double)present+ambiguos*0.25)/(double)max)*10);
+    }
+}
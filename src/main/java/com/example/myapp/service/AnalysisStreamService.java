@@ -0,0 +1,94 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.SaveResultRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analisi in streaming (Server-Sent Events): ogni elemento della checklist viene inviato
+ * al client appena l'analyzer lo produce (evento "item"), poi il risultato completo
+ * viene salvato con {@link PolicyService#addPolicyAndAnalysis} e inviato come evento "done".
+ * Se il client si disconnette l'analisi prosegue e viene comunque salvata.
+ */
+@Slf4j
+@Service
+public class AnalysisStreamService {
+
+    private final AnalyzerService analyzerService;
+    private final PolicyService policyService;
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    public AnalysisStreamService(AnalyzerService analyzerService,
+                                 PolicyService policyService,
+                                 @Value("${app.analyzer.stream.workers:4}") int workers,
+                                 @Value("${app.analyzer.stream.timeout:PT10M}") Duration timeout) {
+        this.analyzerService = analyzerService;
+        this.policyService = policyService;
+        this.timeout = timeout;
+
+        int size = Math.max(1, workers);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "analysis-stream-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public SseEmitter stream(String policyText, Long userId) {
+        if (policyText == null || policyText.isBlank()) throw new IllegalArgumentException("text is required");
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        AtomicBoolean clientGone = new AtomicBoolean();
+        emitter.onTimeout(() -> clientGone.set(true));
+        emitter.onError(e -> clientGone.set(true));
+
+        executor.execute(() -> {
+            try {
+                String resJson = analyzerService.analyze(policyText,
+                        item -> send(emitter, clientGone, "item", item));
+                policyService.addPolicyAndAnalysis(new SaveResultRequest(policyText, resJson, userId));
+                send(emitter, clientGone, "done", resJson);
+                emitter.complete();
+            } catch (Exception e) {
+                log.warn("Streaming analysis failed", e);
+                send(emitter, clientGone, "error",
+                        Map.of("message", Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName())));
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void send(SseEmitter emitter, AtomicBoolean clientGone, String event, Object data) {
+        if (clientGone.get()) return;
+        try {
+            // String = JSON già serializzato (risultato dell'analyzer), il resto passa da Jackson
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // client disconnesso: l'analisi continua e viene salvata
+            clientGone.set(true);
+        }
+    }
+}
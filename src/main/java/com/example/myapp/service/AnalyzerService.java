@@ -0,0 +1,328 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.ProcessRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+
+/**
+ * Esegue il policy-analyzer esterno.
+ * Ogni invocazione lavora in una directory privata (input e output) creata da
+ * {@link AnalyzerToolBundle}, quindi due analisi concorrenti non possono mai
+ * leggere/scrivere gli stessi file; il bundle del tool invece è estratto una volta sola.
+ * Il numero di processi in parallelo è limitato da app.analyzer.max-parallel.
+ * I risultati passano da {@link AnalysisCache}: un testo già analizzato non rilancia il processo.
+ * Con app.analyzer.chunk-size &gt; 0 la checklist viene divisa in gruppi eseguiti in parallelo.
+ */
+@Slf4j
+@Service
+public class AnalyzerService {
+
+    private final AnalyzerToolBundle toolBundle;
+    private final AnalysisCache cache;
+    private final AnalyzerWorkerPool workerPool;
+    private final ObjectMapper objectMapper;
+    private final int maxParallel;
+    private final int chunkSize;
+    private final int streamChunkSize;
+    private final Semaphore slots;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor chunkExecutor;
+    private final AtomicLong chunkSeq = new AtomicLong();
+
+    public AnalyzerService(AnalyzerToolBundle toolBundle,
+                           AnalysisCache cache,
+                           AnalyzerWorkerPool workerPool,
+                           ObjectMapper objectMapper,
+                           @Value("${app.analyzer.max-parallel:0}") int maxParallel,
+                           @Value("${app.analyzer.chunk-size:0}") int chunkSize,
+                           @Value("${app.analyzer.stream.chunk-size:1}") int streamChunkSize) {
+        this.toolBundle = toolBundle;
+        this.cache = cache;
+        this.workerPool = workerPool;
+        // 0 (o negativo) = un processo per core disponibile
+        this.maxParallel = maxParallel > 0 ? maxParallel : Runtime.getRuntime().availableProcessors();
+        this.slots = new Semaphore(this.maxParallel, true);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.streamChunkSize = streamChunkSize;
+
+        AtomicInteger threadSeq = new AtomicInteger();
+        this.chunkExecutor = new ThreadPoolExecutor(this.maxParallel, this.maxParallel, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                r -> {
+                    Thread t = new Thread(r, "analyzer-chunk-" + threadSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Analizza il testo della policy e restituisce il JSON prodotto dall'analyzer.
+     * Blocca finché non si libera uno slot se ci sono già max-parallel analisi in corso.
+     */
+    public String analyze(String policyText) {
+        return analyze(policyText, null);
+    }
+
+    /**
+     * Come {@link #analyze(String)}, ma passa a {@code onItem} ogni elemento {id,status,reasoning}
+     * appena è disponibile. In streaming la checklist viene sempre divisa in gruppi
+     * (app.analyzer.stream.chunk-size) così i primi elementi arrivano prima della fine.
+     * {@code onItem} può essere chiamato da thread diversi.
+     */
+    public String analyze(String policyText, Consumer<JsonNode> onItem) {
+        if (policyText == null || policyText.isBlank()) throw new IllegalArgumentException("text is required");
+        if (!cache.isEnabled()) return runBounded(policyText, onItem);
+
+        String key = cache.keyFor(policyText);
+        Optional<String> cached = cache.get(key);
+        if (cached.isPresent()) {
+            emitAll(cached.get(), onItem);
+            return cached.get();
+        }
+
+        // stesso testo già in analisi: aspetta quel risultato invece di lanciare un altro processo
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            String resJson = await(running);
+            emitAll(resJson, onItem);
+            return resJson;
+        }
+        try {
+            String resJson = runBounded(policyText, onItem);
+            cache.put(key, resJson);
+            mine.complete(resJson);
+            return resJson;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Rianalizza solo gli elementi {@code rerunIds} (id di checklist.json) e riprende gli altri
+     * da {@code previousJson}; il risultato è nell'ordine di checklist.json. Non passa dalla
+     * cache: il JSON ottenuto dipende anche dall'analisi precedente, non solo dal testo.
+     */
+    public String reanalyze(String policyText, String previousJson, Set<String> rerunIds) {
+        if (policyText == null || policyText.isBlank()) throw new IllegalArgumentException("text is required");
+        if (rerunIds.isEmpty()) return previousJson;
+
+        List<AnalyzerToolBundle.ChecklistItem> checklist = toolBundle.checklistItems();
+        String ids = checklist.stream()
+                .map(AnalyzerToolBundle.ChecklistItem::id)
+                .filter(rerunIds::contains)
+                .collect(Collectors.joining(","));
+        try {
+            List<JsonNode> results = new ArrayList<>();
+            JsonNode fresh = objectMapper.readTree(runOnce(policyText, ids));
+            if (!fresh.isArray()) throw new RuntimeException("Analysis failed: unexpected analyzer output");
+            fresh.forEach(results::add);
+            for (JsonNode old : objectMapper.readTree(previousJson)) {
+                if (!rerunIds.contains(checklistId(old))) results.add(old);
+            }
+            return mergeInChecklistOrder(checklist, results).toString();
+        } catch (IOException e) {
+            throw new RuntimeException("Analysis failed: unexpected analyzer output", e);
+        }
+    }
+
+    private String runBounded(String policyText, Consumer<JsonNode> onItem) {
+        int groupSize = onItem != null ? streamChunkSize : chunkSize;
+        if (groupSize > 0) return runChunked(policyText, groupSize, onItem);
+
+        String resJson = runOnce(policyText, "all");
+        emitAll(resJson, onItem);
+        return resJson;
+    }
+
+    private void emitAll(String resJson, Consumer<JsonNode> onItem) {
+        if (onItem == null) return;
+        try {
+            objectMapper.readTree(resJson).forEach(onItem);
+        } catch (IOException e) {
+            throw new RuntimeException("Analysis failed: unexpected analyzer output", e);
+        }
+    }
+
+    /** Una invocazione dell'analyzer (processo o worker) sugli id indicati, dentro uno slot. */
+    private String runOnce(String policyText, String ids) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Analysis interrupted", e);
+        }
+        try {
+            // worker persistente se abilitato, altrimenti un processo per analisi
+            return workerPool.isEnabled()
+                    ? workerPool.analyze(policyText, ids)
+                    : runAnalyzer(policyText, ids);
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Divide gli elementi della checklist in gruppi di chunk-size (mai mescolando priorità diverse),
+     * li esegue in parallelo con --ids e unisce gli array parziali nell'ordine di checklist.json.
+     * I gruppi con priority più bassa (1 = GDPR essenziali) passano avanti nella coda condivisa.
+     */
+    private String runChunked(String policyText, int groupSize, Consumer<JsonNode> onItem) {
+        List<AnalyzerToolBundle.ChecklistItem> checklist = toolBundle.checklistItems();
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<CompletableFuture<JsonNode>> parts = new ArrayList<>();
+
+        for (List<AnalyzerToolBundle.ChecklistItem> group : groupByPriority(checklist, groupSize)) {
+            String ids = group.stream().map(AnalyzerToolBundle.ChecklistItem::id).collect(Collectors.joining(","));
+            CompletableFuture<JsonNode> part = new CompletableFuture<>();
+            chunkExecutor.execute(new PrioritizedTask(group.get(0).priority(), chunkSeq.incrementAndGet(), () -> {
+                if (aborted.get()) {
+                    part.cancel(false);
+                    return;
+                }
+                try {
+                    JsonNode array = objectMapper.readTree(runOnce(policyText, ids));
+                    if (onItem != null && array.isArray()) array.forEach(onItem);
+                    part.complete(array);
+                } catch (Throwable t) {
+                    aborted.set(true); // un gruppo fallito fa fallire l'analisi: gli altri non partono
+                    part.completeExceptionally(t);
+                }
+            }));
+            parts.add(part);
+        }
+
+        // aspetta tutti i gruppi; in caso di errore riporta il primo fallimento reale, non le cancellazioni
+        await(CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).handle((v, t) -> null));
+        parts.stream()
+                .filter(p -> p.isCompletedExceptionally() && !p.isCancelled())
+                .findFirst()
+                .ifPresent(AnalyzerService::await);
+
+        List<JsonNode> results = new ArrayList<>();
+        for (CompletableFuture<JsonNode> part : parts) {
+            JsonNode array = await(part);
+            if (!array.isArray()) throw new RuntimeException("Analysis failed: unexpected analyzer output");
+            array.forEach(results::add);
+        }
+        return mergeInChecklistOrder(checklist, results).toString();
+    }
+
+    static List<List<AnalyzerToolBundle.ChecklistItem>> groupByPriority(List<AnalyzerToolBundle.ChecklistItem> checklist,
+                                                                       int chunkSize) {
+        List<AnalyzerToolBundle.ChecklistItem> sorted = checklist.stream()
+                .sorted(Comparator.comparingInt(AnalyzerToolBundle.ChecklistItem::priority)) // stabile
+                .toList();
+        List<List<AnalyzerToolBundle.ChecklistItem>> groups = new ArrayList<>();
+        List<AnalyzerToolBundle.ChecklistItem> current = new ArrayList<>();
+        for (AnalyzerToolBundle.ChecklistItem item : sorted) {
+            boolean priorityChanged = !current.isEmpty() && current.get(0).priority() != item.priority();
+            if (current.size() == chunkSize || priorityChanged) {
+                groups.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(item);
+        }
+        if (!current.isEmpty()) groups.add(current);
+        return groups;
+    }
+
+    private ArrayNode mergeInChecklistOrder(List<AnalyzerToolBundle.ChecklistItem> checklist, List<JsonNode> results) {
+        Map<String, Integer> position = new HashMap<>();
+        for (int i = 0; i < checklist.size(); i++) position.put(checklist.get(i).id(), i);
+
+        ToIntFunction<JsonNode> pos = n -> position.getOrDefault(checklistId(n), Integer.MAX_VALUE);
+        ArrayNode merged = objectMapper.createArrayNode();
+        results.stream().sorted(Comparator.comparingInt(pos)).forEach(merged::add);
+        return merged;
+    }
+
+    /** L'analyzer a volte aggiunge un "-" finale all'id (es. "GDPR_13_1_a-"). */
+    private static String checklistId(JsonNode item) {
+        String id = item.path("id").asText();
+        return id.endsWith("-") ? id.substring(0, id.length() - 1) : id;
+    }
+
+    public int getMaxParallel() { return maxParallel; }
+
+    @PreDestroy
+    public void shutdown() {
+        chunkExecutor.shutdownNow();
+    }
+
+    private static <T> T await(CompletableFuture<T> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Analysis interrupted", e);
+        } catch (CancellationException e) {
+            throw new RuntimeException("Analysis cancelled", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException("Analysis failed", e.getCause());
+        }
+    }
+
+    /** Task della coda a priorità: prima la priority più bassa, poi l'ordine di arrivo. */
+    private record PrioritizedTask(int priority, long seq, Runnable body)
+            implements Runnable, Comparable<PrioritizedTask> {
+        @Override
+        public void run() { body.run(); }
+
+        @Override
+        public int compareTo(PrioritizedTask o) {
+            int c = Integer.compare(priority, o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private String runAnalyzer(String policyText, String ids) {
+        // 1) Private workspace for this invocation only, removed as soon as the run ends
+        try (var ws = toolBundle.newWorkspace()) {
+            Path inputFile = ws.dir().resolve("policies").resolve("policy.txt");
+
+            // 2) Write the input policy
+            Files.createDirectories(inputFile.getParent());
+            Files.writeString(inputFile, policyText, StandardCharsets.UTF_8, CREATE, TRUNCATE_EXISTING);
+
+            // 3) Run the shared executable with cwd = workspace so relative reads (.env, checklist.json)
+            //    and the relative outputs/analysis.json stay inside this workspace
+            ProcessRunner.runScript(
+                    List.of(toolBundle.executable().toString(), inputFile.toString(), "--ids", ids),
+                    ws.dir().toFile()
+            );
+
+            // 4) Read the result straight from the private workspace
+            return Files.readString(ws.dir().resolve("outputs").resolve("analysis.json"), StandardCharsets.UTF_8);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Analysis failed", e);
+        }
+    }
+}
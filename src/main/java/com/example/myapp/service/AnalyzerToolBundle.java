@@ -0,0 +1,217 @@
+package com.example.myapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.attribute.PosixFilePermission.*;
+
+/**
+ * Bundle del policy-analyzer (eseguibile, checklist.json, .env) estratto dal classpath
+ * una sola volta (all'avvio se app.analyzer.eager-init=true, altrimenti al primo uso)
+ * e riusato da tutte le analisi. Ogni analisi lavora in un {@link Workspace} privato
+ * che viene cancellato appena l'analisi termina.
+ */
+@Slf4j
+@Component
+public class AnalyzerToolBundle {
+
+    static final String RESOURCE_DIR = "com/example/myapp/scripts/";
+
+    private final ObjectMapper objectMapper;
+    private final boolean eagerInit;
+
+    private volatile Path dir;
+    private Path executable;
+    private Path checklist;
+    private Path env;
+    private volatile String checklistVersion;
+    private volatile List<ChecklistItem> checklistItems;
+
+    public AnalyzerToolBundle(ObjectMapper objectMapper,
+                              @Value("${app.analyzer.eager-init:true}") boolean eagerInit) {
+        this.objectMapper = objectMapper;
+        this.eagerInit = eagerInit;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!eagerInit) return;
+        try {
+            ensureExtracted();
+        } catch (Exception e) {
+            // non blocca l'avvio: si riprova al primo utilizzo
+            log.error("Cannot prepare policy-analyzer bundle, will retry on first use", e);
+        }
+    }
+
+    public Path executable() {
+        ensureExtracted();
+        return executable;
+    }
+
+    /** SHA-256 (hex) di checklist.json: cambia quando cambiano gli elementi da verificare. */
+    public String checklistVersion() {
+        String v = checklistVersion;
+        if (v == null) {
+            // letto dal classpath: non serve l'eseguibile per calcolarla
+            try (var in = Objects.requireNonNull(
+                    Thread.currentThread().getContextClassLoader().getResourceAsStream(RESOURCE_DIR + "checklist.json"),
+                    "Missing resource: " + RESOURCE_DIR + "checklist.json")) {
+                v = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(in.readAllBytes()));
+            } catch (Exception e) {
+                throw new RuntimeException("Cannot read checklist.json", e);
+            }
+            checklistVersion = v;
+        }
+        return v;
+    }
+
+    /** Elementi di checklist.json (id + priority) nell'ordine del file. */
+    public List<ChecklistItem> checklistItems() {
+        List<ChecklistItem> items = checklistItems;
+        if (items == null) {
+            try (var in = Objects.requireNonNull(
+                    Thread.currentThread().getContextClassLoader().getResourceAsStream(RESOURCE_DIR + "checklist.json"),
+                    "Missing resource: " + RESOURCE_DIR + "checklist.json")) {
+                List<ChecklistItem> parsed = new ArrayList<>();
+                for (JsonNode node : objectMapper.readTree(in)) {
+                    parsed.add(new ChecklistItem(node.path("id").asText(), node.path("priority").asInt(Integer.MAX_VALUE)));
+                }
+                items = List.copyOf(parsed);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot read checklist.json", e);
+            }
+            checklistItems = items;
+        }
+        return items;
+    }
+
+    /** Crea una directory di lavoro privata con checklist.json e .env del bundle. */
+    public Workspace newWorkspace() throws IOException {
+        ensureExtracted();
+        Path ws = Files.createTempDirectory("policy-job-");
+        try {
+            link(ws.resolve("checklist.json"), checklist);
+            link(ws.resolve(".env"), env);
+            return new Workspace(ws);
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(ws);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void cleanup() {
+        if (dir != null) {
+            deleteRecursively(dir);
+            dir = null;
+        }
+    }
+
+    private void ensureExtracted() {
+        if (dir != null) return;
+        synchronized (this) {
+            if (dir != null) return;
+            Path toolDir = null;
+            try {
+                toolDir = Files.createTempDirectory("policy-tool-");
+                Path exe = extractTo(toolDir.resolve("policy-analyzer1"), RESOURCE_DIR + "policy-analyzer");
+                Path json = extractTo(toolDir.resolve("checklist.json"), RESOURCE_DIR + "checklist.json");
+                Path dotEnv = extractTo(toolDir.resolve(".env"), RESOURCE_DIR + ".env");
+
+                // Make the script executable (Linux/macOS)
+                try {
+                    Files.setPosixFilePermissions(exe, EnumSet.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE));
+                } catch (UnsupportedOperationException ignore) {
+                    exe.toFile().setExecutable(true, true);
+                }
+
+                verify(exe, json, dotEnv);
+                this.executable = exe;
+                this.checklist = json;
+                this.env = dotEnv;
+                this.dir = toolDir;
+                log.info("policy-analyzer bundle ready in {}", toolDir);
+            } catch (Exception e) {
+                if (toolDir != null) deleteRecursively(toolDir);
+                throw new RuntimeException("Cannot prepare policy-analyzer bundle", e);
+            }
+        }
+    }
+
+    private static void verify(Path exe, Path json, Path dotEnv) throws IOException {
+        for (Path p : new Path[]{exe, json, dotEnv}) {
+            if (Files.size(p) == 0) throw new IllegalStateException("Empty analyzer resource: " + p.getFileName());
+        }
+        if (!Files.isExecutable(exe)) throw new IllegalStateException("policy-analyzer is not executable");
+    }
+
+    /** Symlink verso il file del bundle; copia se il filesystem non supporta i link. */
+    private static void link(Path target, Path source) throws IOException {
+        try {
+            Files.createSymbolicLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, REPLACE_EXISTING);
+        }
+    }
+
+    /** Extract a classpath resource to a target file (overwrites if exists). */
+    private static Path extractTo(Path target, String resourcePath) throws IOException {
+        try (var in = Objects.requireNonNull(
+                Thread.currentThread().getContextClassLoader().getResourceAsStream(resourcePath),
+                "Missing resource: " + resourcePath)) {
+            Files.createDirectories(target.getParent());
+            Files.copy(in, target, REPLACE_EXISTING);
+            return target;
+        }
+    }
+
+    static void deleteRecursively(Path root) {
+        if (root == null || !Files.exists(root)) return;
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    log.warn("Cannot delete {}", p, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Cannot delete {}", root, e);
+        }
+    }
+
+    /** Elemento della checklist: priority 1 = più importante. */
+    public record ChecklistItem(String id, int priority) {}
+
+    /** Directory di lavoro di una singola analisi, cancellata in close(). */
+    public static final class Workspace implements AutoCloseable {
+        private final Path dir;
+
+        private Workspace(Path dir) { this.dir = dir; }
+
+        public Path dir() { return dir; }
+
+        @Override
+        public void close() { deleteRecursively(dir); }
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.myapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool di processi policy-analyzer persistenti (modalità server, app.analyzer.worker.enabled=true).
+ * Ogni worker viene avviato una volta sola, carica .env e checklist.json all'avvio e riceve
+ * le richieste su stdin. Protocollo a frame: 4 byte big-endian con la lunghezza + payload JSON UTF-8.
+ * <pre>
+ * richiesta: {"op":"analyze","policy":"...","ids":"all"}   risposta: {"ok":true,"result":[...]}
+ * richiesta: {"op":"ping"}                                  risposta: {"ok":true}
+ * errore:                                                   risposta: {"ok":false,"error":"..."}
+ * </pre>
+ * I worker inattivi vengono controllati periodicamente con un ping; un worker che muore,
+ * non risponde o supera il timeout viene terminato e sostituito.
+ */
+@Slf4j
+@Component
+public class AnalyzerWorkerPool {
+
+    private static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    private final AnalyzerToolBundle toolBundle;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int size;
+    private final List<String> serveArgs;
+    private final Duration requestTimeout;
+    private final Duration healthInterval;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger workerSeq = new AtomicInteger();
+    private final AtomicInteger live = new AtomicInteger();
+    // un thread per gli health check, l'altro per i watchdog dei timeout
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r, "analyzer-worker-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean started;
+    private volatile boolean stopping;
+
+    public AnalyzerWorkerPool(AnalyzerToolBundle toolBundle,
+                              ObjectMapper objectMapper,
+                              @Value("${app.analyzer.worker.enabled:false}") boolean enabled,
+                              @Value("${app.analyzer.worker.pool-size:2}") int size,
+                              @Value("${app.analyzer.worker.args:--serve}") String serveArgs,
+                              @Value("${app.analyzer.worker.request-timeout:PT5M}") Duration requestTimeout,
+                              @Value("${app.analyzer.worker.health-interval:PT30S}") Duration healthInterval) {
+        this.toolBundle = toolBundle;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.size = Math.max(1, size);
+        this.serveArgs = Arrays.stream(serveArgs.trim().split("\\s+")).filter(a -> !a.isEmpty()).toList();
+        this.requestTimeout = requestTimeout;
+        this.healthInterval = healthInterval;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        try {
+            ensureStarted();
+        } catch (Exception e) {
+            // non blocca l'avvio: i worker vengono ricreati al primo utilizzo
+            log.error("Cannot start analyzer workers", e);
+        }
+    }
+
+    /** Analizza il testo con un worker libero; se il worker fallisce viene sostituito. */
+    public String analyze(String policyText, String ids) {
+        ensureStarted();
+        Worker worker = borrow();
+        ObjectNode req = objectMapper.createObjectNode()
+                .put("op", "analyze")
+                .put("policy", policyText)
+                .put("ids", ids);
+        JsonNode res;
+        try {
+            res = worker.exchange(req, requestTimeout);
+        } catch (IOException | RuntimeException e) {
+            // protocollo rotto, timeout o processo morto: il worker viene sostituito
+            replace(worker);
+            throw new RuntimeException("Analysis failed", e);
+        }
+        release(worker);
+
+        if (!res.path("ok").asBoolean(false)) {
+            throw new RuntimeException("Analyzer worker error: " + res.path("error").asText("unknown"));
+        }
+        JsonNode result = res.get("result");
+        if (result == null || result.isNull()) throw new RuntimeException("Analyzer worker returned no result");
+        return result.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        scheduler.shutdownNow();
+        List<Worker> all = new ArrayList<>();
+        // sotto il lock di topUp: nessun worker appena creato resta fuori dal drain
+        synchronized (this) {
+            idle.drainTo(all);
+        }
+        all.forEach(Worker::stop);
+    }
+
+    /** Worker avviati e non ancora terminati (per i test). */
+    int liveWorkers() { return live.get(); }
+
+    /* ---------- Pool management ---------- */
+
+    private void ensureStarted() {
+        if (started) return;
+        synchronized (this) {
+            if (started) return;
+            // un avvio fallito a metà lascia dei worker: si completa solo la parte mancante
+            while (live.get() < size) idle.add(spawn());
+            long every = Math.max(1, healthInterval.toMillis());
+            scheduler.scheduleWithFixedDelay(this::checkHealth, every, every, TimeUnit.MILLISECONDS);
+            started = true;
+            log.info("Started {} analyzer workers", size);
+        }
+    }
+
+    private Worker borrow() {
+        try {
+            Worker w = idle.poll(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (w == null) throw new RuntimeException("No analyzer worker available");
+            return w;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Analysis interrupted", e);
+        }
+    }
+
+    private void release(Worker worker) {
+        if (stopping) worker.stop();
+        else idle.add(worker);
+    }
+
+    private void replace(Worker broken) {
+        broken.stop();
+        topUp();
+    }
+
+    /**
+     * Riporta il pool a size worker. Conteggio e avvio avvengono sotto lo stesso lock,
+     * così sostituzioni concorrenti e health check non creano più worker del necessario.
+     */
+    private synchronized void topUp() {
+        while (!stopping && live.get() < size) {
+            try {
+                idle.add(spawn());
+            } catch (Exception e) {
+                // riprova al prossimo health check
+                log.error("Cannot restart analyzer worker", e);
+                return;
+            }
+        }
+    }
+
+    void checkHealth() {
+        // ripristina i worker mancanti (es. restart fallito in precedenza)
+        topUp();
+        // ping solo dei worker liberi; quelli occupati rispondono già a una richiesta
+        List<Worker> snapshot = new ArrayList<>();
+        idle.drainTo(snapshot);
+        for (Worker w : snapshot) {
+            boolean healthy;
+            try {
+                healthy = w.isAlive() && w.exchange(objectMapper.createObjectNode().put("op", "ping"),
+                        Duration.ofSeconds(10)).path("ok").asBoolean(false);
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (healthy) release(w);
+            else {
+                log.warn("Analyzer worker {} failed health check, restarting", w.name);
+                replace(w);
+            }
+        }
+    }
+
+    private Worker spawn() {
+        try {
+            AnalyzerToolBundle.Workspace ws = toolBundle.newWorkspace();
+            List<String> cmd = new ArrayList<>();
+            cmd.add(toolBundle.executable().toString());
+            cmd.addAll(serveArgs);
+            ProcessBuilder pb = new ProcessBuilder(cmd).directory(ws.dir().toFile());
+            Process p;
+            try {
+                p = pb.start();
+            } catch (IOException e) {
+                ws.close();
+                throw e;
+            }
+            Worker w = new Worker("analyzer-worker-" + workerSeq.incrementAndGet(), p, ws);
+            live.incrementAndGet();
+            w.drainStderr();
+            return w;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot start analyzer worker", e);
+        }
+    }
+
+    /* ---------- Worker ---------- */
+
+    private final class Worker {
+        private final String name;
+        private final Process process;
+        private final AnalyzerToolBundle.Workspace workspace;
+        private final DataOutputStream in;
+        private final DataInputStream out;
+
+        Worker(String name, Process process, AnalyzerToolBundle.Workspace workspace) {
+            this.name = name;
+            this.process = process;
+            this.workspace = workspace;
+            this.in = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.out = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        boolean isAlive() { return process.isAlive(); }
+
+        /** Invia un frame e legge la risposta; oltre il timeout il processo viene terminato. */
+        JsonNode exchange(JsonNode request, Duration timeout) throws IOException {
+            ScheduledFuture<?> watchdog = scheduler.schedule(process::destroyForcibly,
+                    timeout.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                byte[] payload = objectMapper.writeValueAsBytes(request);
+                in.writeInt(payload.length);
+                in.write(payload);
+                in.flush();
+
+                int len = out.readInt();
+                if (len < 0 || len > MAX_FRAME) throw new IOException("Invalid frame length " + len);
+                byte[] response = out.readNBytes(len);
+                if (response.length != len) throw new EOFException("Truncated frame from " + name);
+                return objectMapper.readTree(response);
+            } finally {
+                watchdog.cancel(false);
+            }
+        }
+
+        /** stderr del worker nei log invece di scartarlo. */
+        void drainStderr() {
+            Thread t = new Thread(() -> {
+                try (var r = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = r.readLine()) != null) log.info("[{}] {}", name, line);
+                } catch (IOException ignore) {
+                    // processo terminato
+                }
+            }, name + "-stderr");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        void stop() {
+            live.decrementAndGet();
+            try {
+                in.close();
+            } catch (IOException ignore) {
+                // già chiuso
+            }
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+            workspace.close();
+        }
+    }
+}
@@ -1,48 +1,56 @@
 package com.example.myapp.service;
 
 import com.example.myapp.dto.AuthResponse;
+import com.example.myapp.dto.IssuedToken;
 import com.example.myapp.dto.LoginRequest;
 import com.example.myapp.dto.RefreshRequest;
-import com.example.myapp.entity.RefreshToken;
+import com.example.myapp.dto.StoredRefreshToken;
 import com.example.myapp.entity.User;
-import com.example.myapp.repository.RefreshTokenRepository;
 import com.example.myapp.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.example.myapp.dto.SignupRequest;
 import com.example.myapp.entity.Role;
 import com.example.myapp.repository.RoleRepository;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.time.OffsetDateTime;
-import java.util.Base64;
 
+@Slf4j
 @Service
 public class AuthService {
 
     private final UserRepository userRepo;
-    private final RefreshTokenRepository refreshRepo;
+    private final RefreshTokenStore refreshStore;
     private final RoleRepository roleRepo;
-    private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final PasswordHashingService passwordHashing;
+    private final boolean rehashOnLogin;
+    private final TransactionTemplate tx;
 
     public AuthService(UserRepository userRepo,
                        RoleRepository roleRepo,
-                       RefreshTokenRepository refreshRepo,
-                       PasswordEncoder passwordEncoder,
-                       JwtService jwtService) {
+                       RefreshTokenStore refreshStore,
+                       JwtService jwtService,
+                       PasswordHashingService passwordHashing,
+                       PlatformTransactionManager txManager,
+                       @Value("${app.auth.password.rehash-on-login:false}") boolean rehashOnLogin) {
         this.roleRepo = roleRepo;
         this.userRepo = userRepo;
-        this.refreshRepo = refreshRepo;
-        this.passwordEncoder = passwordEncoder;
+        this.refreshStore = refreshStore;
         this.jwtService = jwtService;
+        this.passwordHashing = passwordHashing;
+        this.rehashOnLogin = rehashOnLogin;
+        this.tx = new TransactionTemplate(txManager);
     }
     /* ---------- SIGNUP (register + immediate login) ---------- */
-    @Transactional
+    // hash fuori dalla transazione: l'attesa sul pool di hashing non tiene una connessione al DB
     public AuthResponse signup(SignupRequest req) {
         var username = req.username();
         var rawPassword = req.password();
@@ -59,110 +67,113 @@ public class AuthService {
             throw new IllegalArgumentException("Username already taken");
         }
 
-        Role r = new Role();
-        r.setName("USER");
-        r.setId(Long.valueOf(1));
-        // Create user
-        var user = new User();
-        user.setUsername(username);
-        user.setPasswordHash(passwordEncoder.encode(rawPassword));
-        user.setRole(r);
-        user = userRepo.save(user);
-
-        // Issue tokens (auto-login on signup)
-        String access = jwtService.generateAccessToken(user);
-        String refresh = jwtService.generateRefreshToken(user);
-        saveRefreshToken(user, refresh);
-
-        return new AuthResponse(access, refresh, user.getUsername(), user.getRole().getName());
+        String passwordHash = passwordHashing.encode(rawPassword);
+
+        return tx.execute(status -> {
+            Role r = new Role();
+            r.setName("USER");
+            r.setId(Long.valueOf(1));
+            // Create user
+            var user = new User();
+            user.setUsername(username);
+            user.setPasswordHash(passwordHash);
+            user.setRole(r);
+            user = userRepo.save(user);
+
+            // Issue tokens (auto-login on signup)
+            String access = jwtService.generateAccessToken(user);
+            IssuedToken refresh = jwtService.issueRefreshToken(user);
+            saveRefreshToken(user, refresh);
+
+            return new AuthResponse(access, refresh.token(), user.getUsername(), user.getRole().getName());
+        });
     }
     /* -------- Login -------- */
 
     public AuthResponse login(LoginRequest req) {
         //System.out.println("\nDIOCAN"+userRepo.findAll().get(0).getUsername()+"\t"+userRepo.findAll().get(0).getPasswordHash());
-        User u = userRepo.findByUsername(req.username())
+        // utente + ruolo in una query: il ruolo serve per il token e la risposta
+        User u = userRepo.findWithRoleByUsername(req.username())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         //System.out.println("DIOCAN"+passwordEncoder.matches(,u.getPasswordHash())  +"\t"+req.password());
-        if (!passwordEncoder.matches(req.password(), u.getPasswordHash())) {
+        if (!passwordHashing.matches(req.password(), u.getPasswordHash())) {
             throw new BadCredentialsException("Bad credentials");
         }
+        if (rehashOnLogin) rehashIfNeeded(u, req.password());
 
         String access = jwtService.generateAccessToken(u);
-        String refresh = jwtService.generateRefreshToken(u);
+        IssuedToken refresh = jwtService.issueRefreshToken(u);
 
         // Persist hashed refresh for revocation/rotation
         saveRefreshToken(u, refresh);
 
-        return new AuthResponse(access, refresh, u.getUsername(), u.getRole().getName());
+        return new AuthResponse(access, refresh.token(), u.getUsername(), u.getRole().getName());
     }
 
     /* -------- Refresh (rotation) -------- */
 
     public AuthResponse refresh(RefreshRequest req) {
         String rawRefresh = req.refreshToken();
-        String subject = jwtService.extractUsername(rawRefresh); // throws if invalid signature
-        User u = userRepo.findByUsername(subject)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Check token integrity/expiry
-        if (jwtService.isExpired(rawRefresh)) {
+        // Check token integrity/expiry: firma e scadenza verificate una sola volta
+        Claims claims;
+        try {
+            claims = jwtService.parse(rawRefresh); // throws if invalid signature
+        } catch (ExpiredJwtException e) {
             throw new RuntimeException("Refresh token expired");
         }
+        User u = userRepo.findWithRoleByUsername(claims.getSubject())
+                .orElseThrow(() -> new RuntimeException("User not found"));
 
-        // Validate against DB (exists, not revoked, not expired)
+        // ROTATION: revoke old (only if it exists, is not revoked and not expired) + issue a new refresh
         var hash = hashRefresh(rawRefresh);
-        var existing = refreshRepo.findByTokenHash(hash)
-                .orElseThrow(() -> new RuntimeException("Refresh token not recognized"));
-
-        if (existing.isRevoked() || existing.getExpiresAt().isBefore(OffsetDateTime.now())) {
-            throw new RuntimeException("Refresh token invalid");
+        switch (refreshStore.revokeIfActive(hash, OffsetDateTime.now())) {
+            case NOT_FOUND -> throw new RuntimeException("Refresh token not recognized");
+            case INACTIVE -> throw new RuntimeException("Refresh token invalid");
+            case REVOKED -> { }
         }
 
-        // ROTATION: revoke old + issue a new refresh
-        existing.setRevoked(true);
-        refreshRepo.save(existing);
-
         String newAccess = jwtService.generateAccessToken(u);
-        String newRefresh = jwtService.generateRefreshToken(u);
+        IssuedToken newRefresh = jwtService.issueRefreshToken(u);
         saveRefreshToken(u, newRefresh);
 
-        return new AuthResponse(newAccess, newRefresh, u.getUsername(), u.getRole().getName());
+        return new AuthResponse(newAccess, newRefresh.token(), u.getUsername(), u.getRole().getName());
     }
 
     /* -------- Logout (revoke) -------- */
 
     public void logout(RefreshRequest req) {
-        String hash = hashRefresh(req.refreshToken());
-        refreshRepo.findByTokenHash(hash).ifPresent(rt -> {
-            rt.setRevoked(true);
-            refreshRepo.save(rt);
-        });
+        refreshStore.revoke(hashRefresh(req.refreshToken()));
     }
 
     /* -------- Helpers -------- */
 
-    private void saveRefreshToken(User u, String rawRefresh) {
-        var rt = new RefreshToken();
-        rt.setUser(u);
-        rt.setTokenHash(hashRefresh(rawRefresh));
-        rt.setIssuedAt(OffsetDateTime.now());
-
-        // expiresAt = now + configured refresh days (reuse JwtService config by reading from token)
-        // Simpler: extract exp from JWT so DB record matches token precisely
-        var exp = jwtService.extractAllClaims(rawRefresh).getExpiration().toInstant();
-        rt.setExpiresAt(OffsetDateTime.ofInstant(exp, OffsetDateTime.now().getOffset()));
+    /**
+     * Con la password in chiaro appena verificata rigenera l'hash se usa un algoritmo o un costo
+     * diversi da quelli configurati (app.auth.password.encoder / bcrypt-strength).
+     * Un errore qui non deve far fallire il login.
+     */
+    private void rehashIfNeeded(User u, String rawPassword) {
+        String oldHash = u.getPasswordHash();
+        if (!passwordHashing.needsRehash(oldHash)) return;
+        try {
+            String newHash = passwordHashing.encode(rawPassword);
+            if (userRepo.updatePasswordHash(u.getId(), oldHash, newHash) == 1) {
+                u.setPasswordHash(newHash);
+                log.info("Rehashed password of user {}", u.getId());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cannot rehash password of user {}", u.getId(), e);
+        }
+    }
 
-        rt.setRevoked(false);
-        refreshRepo.save(rt);
+    private void saveRefreshToken(User u, IssuedToken refresh) {
+        OffsetDateTime now = OffsetDateTime.now();
+        // expiresAt = exp del JWT appena firmato, senza riparsarlo
+        OffsetDateTime expiresAt = OffsetDateTime.ofInstant(refresh.expiresAt(), now.getOffset());
+        refreshStore.save(new StoredRefreshToken(u.getId(), hashRefresh(refresh.token()), now, expiresAt, null));
     }
 
-    private String hashRefresh(String raw) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(raw.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(digest);
-        } catch (Exception e) {
-            throw new RuntimeException("Cannot hash refresh token", e);
-        }
+    private byte[] hashRefresh(String raw) {
+        return TokenHasher.sha256(raw);
     }
 }
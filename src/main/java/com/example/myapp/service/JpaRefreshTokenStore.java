@@ -0,0 +1,54 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.StoredRefreshToken;
+import com.example.myapp.entity.RefreshToken;
+import com.example.myapp.repository.RefreshTokenRepository;
+import com.example.myapp.repository.UserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/** RefreshTokenStore di default: ogni operazione va subito su refresh_token. */
+@Component
+@ConditionalOnProperty(name = "app.auth.refresh-store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshRepo;
+    private final UserRepository userRepo;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshRepo, UserRepository userRepo) {
+        this.refreshRepo = refreshRepo;
+        this.userRepo = userRepo;
+    }
+
+    @Override
+    public void save(StoredRefreshToken token) {
+        var rt = new RefreshToken();
+        rt.setUser(userRepo.getReferenceById(token.userId()));
+        rt.setTokenHash(token.tokenHash());
+        rt.setIssuedAt(token.issuedAt());
+        rt.setExpiresAt(token.expiresAt());
+        rt.setRevoked(token.revoked());
+        rt.setRevokedAt(token.revokedAt());
+        refreshRepo.save(rt);
+    }
+
+    @Override
+    public Revocation revokeIfActive(byte[] tokenHash, OffsetDateTime now) {
+        // UPDATE condizionato: niente lettura + scrittura separate
+        if (refreshRepo.revokeIfActive(tokenHash, now) == 1) return Revocation.REVOKED;
+        return refreshRepo.existsByTokenHash(tokenHash) ? Revocation.INACTIVE : Revocation.NOT_FOUND;
+    }
+
+    @Override
+    public void revoke(byte[] tokenHash) {
+        refreshRepo.revokeByTokenHash(tokenHash, OffsetDateTime.now());
+    }
+
+    @Override
+    public List<StoredRefreshToken> findActiveByUser(Long userId, OffsetDateTime now) {
+        return refreshRepo.findActiveByUserId(userId, now);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.myapp.service;
 
+import com.example.myapp.dto.IssuedToken;
 import com.example.myapp.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
@@ -18,6 +19,8 @@ import java.util.function.Function;
 public class JwtService {
 
     private final Key signingKey;
+    // immutabile e thread-safe: costruito una volta sola invece che a ogni token
+    private final JwtParser parser;
     private final long accessMinutes;
     private final long refreshDays;
 
@@ -34,6 +37,7 @@ public class JwtService {
             keyBytes = base64Secret.getBytes();
         }
         this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
         this.accessMinutes = accessMinutes;
         this.refreshDays = refreshDays;
     }
@@ -56,30 +60,56 @@ public class JwtService {
     }
 
     public String generateRefreshToken(User user) {
+        return issueRefreshToken(user).token();
+    }
+
+    /** Refresh token + scadenza (la stessa scritta nel claim exp, al secondo). */
+    public IssuedToken issueRefreshToken(User user) {
         Instant now = Instant.now();
-        Instant exp = now.plus(refreshDays, ChronoUnit.DAYS);
-        return Jwts.builder()
+        // exp nel JWT è in secondi: la scadenza restituita deve coincidere con quella del token
+        Instant exp = now.plus(refreshDays, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        String token = Jwts.builder()
                 .setSubject(user.getUsername())
                 .setIssuedAt(Date.from(now))
                 .setExpiration(Date.from(exp))
                 .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
+        return new IssuedToken(token, exp);
     }
 
     /* -------- Parse / Validate -------- */
 
+    /**
+     * Verifica firma e scadenza una sola volta e restituisce i claims, da usare per tutti i controlli
+     * successivi (subject, uid, role, exp) senza riparsare il token.
+     *
+     * @throws ExpiredJwtException se il token è scaduto
+     * @throws JwtException        se il token non è valido
+     */
+    public Claims parse(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     public boolean isTokenValid(String token, String expectedUsername) {
         try {
-            String subject = extractClaim(token, Claims::getSubject);
-            return subject.equals(expectedUsername) && !isExpired(token);
+            Claims claims = parse(token);
+            return expectedUsername.equals(claims.getSubject()) && !isExpired(claims);
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
 
     public boolean isExpired(String token) {
-        Date exp = extractClaim(token, Claims::getExpiration);
-        return exp.before(new Date());
+        try {
+            return isExpired(parse(token));
+        } catch (ExpiredJwtException e) {
+            return true;
+        }
+    }
+
+    public boolean isExpired(Claims claims) {
+        Date exp = claims.getExpiration();
+        return exp != null && exp.before(new Date());
     }
 
     public String extractUsername(String token) {
@@ -95,15 +125,15 @@ public class JwtService {
     }
 
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parse(token);
     }
 
     public Long extractUserId(String token) {
-        Number n = extractAllClaims(token).get("uid", Number.class);
+        return extractUserId(parse(token));
+    }
+
+    public Long extractUserId(Claims claims) {
+        Number n = claims.get("uid", Number.class);
         if (n == null) throw new IllegalArgumentException("uid claim missing");
         return n.longValue(); // works whether uid was int or long
     }
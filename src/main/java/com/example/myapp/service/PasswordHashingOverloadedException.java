@@ -0,0 +1,9 @@
+package com.example.myapp.service;
+
+/** Nessun posto libero nel pool di hashing entro app.auth.password.max-wait (mappata su 503). */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.myapp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hash e verifica delle password (BCrypt/Argon2) su un pool dedicato e limitato, invece che sui
+ * thread delle richieste: un picco di login occupa al massimo app.auth.password.threads core e
+ * non affama le analisi. Al massimo threads + app.auth.password.queue-capacity richieste sono
+ * ammesse insieme (in esecuzione o in coda): le altre aspettano un posto fino a app.auth.password.max-wait
+ * e poi vengono rifiutate (PasswordHashingOverloadedException -> 503). Una richiesta ammessa arriva
+ * sempre in fondo: interrompere un hash già partito non libererebbe la CPU.
+ * Metriche: auth.password.queue (attesa in coda) e auth.password.hash (durata), tag op=matches|encode.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore admission;
+    private final Duration maxWait;
+    private final MeterRegistry meterRegistry;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.auth.password.threads:0}") int threads,
+                                  @Value("${app.auth.password.queue-capacity:200}") int queueCapacity,
+                                  @Value("${app.auth.password.max-wait:PT10S}") Duration maxWait) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+        this.maxWait = maxWait;
+
+        // 0 (o negativo) = metà dei core disponibili
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.admission = new Semaphore(size + Math.max(1, queueCapacity));
+        AtomicInteger seq = new AtomicInteger();
+        // coda senza limite: la dimensione è già limitata da admission
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.password.queue.size", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run("matches", () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public String encode(String rawPassword) {
+        return run("encode", () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /** true se l'hash va rigenerato (algoritmo o costo diversi da quelli configurati); non costa nulla. */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(String op, Callable<T> work) {
+        Timer queued = Timer.builder("auth.password.queue").tag("op", op).register(meterRegistry);
+        Timer hashed = Timer.builder("auth.password.hash").tag("op", op).register(meterRegistry);
+
+        long submittedAt = System.nanoTime();
+        try {
+            if (!admission.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new PasswordHashingOverloadedException("Password hashing is overloaded");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Password hashing interrupted", e);
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    queued.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                    return hashed.recordCallable(work);
+                } finally {
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // solo dopo shutdown(): il task non partirà mai
+            admission.release();
+            throw e;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // l'hash continua sul pool e libera il posto quando finisce
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.myapp.service;
+
+import com.example.myapp.entity.Policy;
+import com.example.myapp.repository.PolicyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Comprime il testo delle policy salvate prima di V16 (content non compresso) in content_gz,
+ * a blocchi di app.policies.compression.batch-size righe, ognuno nella sua transazione.
+ */
+@Slf4j
+@Component
+public class PolicyContentBackfill {
+
+    private final PolicyRepository policyRepo;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public PolicyContentBackfill(PolicyRepository policyRepo,
+                                 PlatformTransactionManager txManager,
+                                 @Value("${app.policies.compression.batch-size:100}") int batchSize) {
+        this.policyRepo = policyRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(initialDelayString = "${app.policies.compression.initial-delay:PT20S}",
+               fixedDelayString = "${app.policies.compression.interval:PT1H}")
+    public void backfill() {
+        int total = 0;
+        int done;
+        do {
+            done = tx.execute(status -> {
+                List<Policy> batch = policyRepo.findUncompressed(PageRequest.of(0, batchSize));
+                // setContent comprime e azzera content: l'UPDATE parte al commit
+                batch.forEach(p -> p.setContent(p.getContent()));
+                return batch.size();
+            });
+            total += done;
+        } while (done == batchSize);
+
+        if (total > 0) log.info("Compressed content of {} policies", total);
+    }
+}
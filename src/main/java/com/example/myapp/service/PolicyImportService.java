@@ -0,0 +1,203 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisResult;
+import com.example.myapp.dto.ImportError;
+import com.example.myapp.dto.ImportReport;
+import com.example.myapp.dto.SaveResultRequest;
+import com.example.myapp.entity.Analysis;
+import com.example.myapp.entity.AnalysisItemEntry;
+import com.example.myapp.entity.Policy;
+import com.example.myapp.entity.User;
+import com.example.myapp.repository.AnalysisItemRepository;
+import com.example.myapp.repository.AnalysisRepository;
+import com.example.myapp.repository.PolicyRepository;
+import com.example.myapp.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Import massivo di Policy + Analysis da NDJSON (una SaveResultRequest per riga).
+ * Le righe vengono lette in streaming e scritte a blocchi di app.policies.import.chunk-size,
+ * ognuno nella sua transazione: id da sequence a blocchi (allocationSize 50) e
+ * hibernate.jdbc.batch_size permettono a Hibernate di inviare gli INSERT in batch.
+ * Gli utenti vengono verificati una volta sola per id. Se un blocco fallisce in scrittura
+ * le sue righe vengono ripetute una per una, così l'errore resta sulla riga che lo causa.
+ */
+@Slf4j
+@Service
+public class PolicyImportService {
+
+    private final PolicyRepository policyRepo;
+    private final AnalysisRepository analysisRepo;
+    private final AnalysisItemRepository analysisItemRepo;
+    private final UserRepository userRepo;
+    private final PolicyService policyService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public PolicyImportService(PolicyRepository policyRepo,
+                               AnalysisRepository analysisRepo,
+                               AnalysisItemRepository analysisItemRepo,
+                               UserRepository userRepo,
+                               PolicyService policyService,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager txManager,
+                               @Value("${app.policies.import.chunk-size:500}") int chunkSize,
+                               @Value("${app.policies.import.max-errors:1000}") int maxErrors) {
+        this.policyRepo = policyRepo;
+        this.analysisRepo = analysisRepo;
+        this.analysisItemRepo = analysisItemRepo;
+        this.userRepo = userRepo;
+        this.policyService = policyService;
+        this.objectMapper = objectMapper;
+        this.tx = new TransactionTemplate(txManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = Math.max(0, maxErrors);
+    }
+
+    public ImportReport importNdjson(InputStream in) throws IOException {
+        Progress progress = new Progress();
+        Set<Long> knownUsers = new HashSet<>();
+        Set<Long> missingUsers = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+            progress.total++;
+            try {
+                chunk.add(parse(lineNo, line));
+            } catch (IllegalArgumentException e) {
+                progress.fail(lineNo, e.getMessage());
+                continue;
+            }
+            if (chunk.size() >= chunkSize) {
+                write(chunk, progress, knownUsers, missingUsers);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) write(chunk, progress, knownUsers, missingUsers);
+
+        log.info("Policy import: {} rows, {} imported, {} failed", progress.total, progress.imported, progress.failed);
+        return progress.report();
+    }
+
+    private Row parse(int lineNo, String line) {
+        SaveResultRequest req;
+        try {
+            req = objectMapper.readValue(line, SaveResultRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (req == null) throw new IllegalArgumentException("Request must not be null");
+        if (req.userId() == null) throw new IllegalArgumentException("userId is required");
+        if (req.text() == null || req.text().isBlank()) throw new IllegalArgumentException("text is required");
+        if (req.resJson() == null || req.resJson().isBlank()) throw new IllegalArgumentException("jsonRes is required");
+        return new Row(lineNo, req, AnalysisJsonParser.parse(req.resJson()));
+    }
+
+    private void write(List<Row> chunk, Progress progress, Set<Long> knownUsers, Set<Long> missingUsers) {
+        // utenti mai visti in questo import: una sola query per blocco
+        Set<Long> unseen = new HashSet<>();
+        for (Row r : chunk) {
+            Long id = r.req().userId();
+            if (!knownUsers.contains(id) && !missingUsers.contains(id)) unseen.add(id);
+        }
+        if (!unseen.isEmpty()) {
+            List<Long> existing = userRepo.findExistingIds(unseen);
+            knownUsers.addAll(existing);
+            unseen.removeAll(existing);
+            missingUsers.addAll(unseen);
+        }
+
+        List<Row> valid = new ArrayList<>(chunk.size());
+        for (Row r : chunk) {
+            if (knownUsers.contains(r.req().userId())) valid.add(r);
+            else progress.fail(r.line(), "User not found: " + r.req().userId());
+        }
+        if (valid.isEmpty()) return;
+
+        try {
+            tx.executeWithoutResult(status -> persist(valid));
+            progress.imported += valid.size();
+        } catch (RuntimeException e) {
+            log.warn("Policy import chunk failed, retrying {} rows one by one", valid.size(), e);
+            for (Row r : valid) {
+                try {
+                    tx.executeWithoutResult(status -> persist(List.of(r)));
+                    progress.imported++;
+                } catch (RuntimeException rowError) {
+                    progress.fail(r.line(), rootMessage(rowError));
+                }
+            }
+        }
+    }
+
+    /** Scrive il blocco; il persistence context è quello della transazione e si chiude con essa. */
+    private void persist(List<Row> rows) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<Policy> policies = new ArrayList<>(rows.size());
+        List<Analysis> analyses = new ArrayList<>(rows.size());
+        List<AnalysisItemEntry> items = new ArrayList<>();
+        Set<Long> users = new HashSet<>();
+
+        for (Row r : rows) {
+            User user = userRepo.getReferenceById(r.req().userId());
+            Policy policy = new Policy(user, r.req().text(), now);
+            Analysis analysis = new Analysis(policy, r.req().resJson(), now);
+            analysis.applyScore(r.parsed().score());
+            policies.add(policy);
+            analyses.add(analysis);
+            items.addAll(PolicyService.itemEntries(analysis, r.parsed()));
+            users.add(r.req().userId());
+        }
+
+        policyRepo.saveAll(policies);
+        analysisRepo.saveAll(analyses);
+        analysisItemRepo.saveAll(items);
+        users.forEach(policyService::evictPolicyCount);
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) root = root.getCause();
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private record Row(int line, SaveResultRequest req, AnalysisResult parsed) {}
+
+    private final class Progress {
+        int total;
+        int imported;
+        int failed;
+        final List<ImportError> errors = new ArrayList<>();
+
+        void fail(int line, String error) {
+            failed++;
+            if (errors.size() < maxErrors) errors.add(new ImportError(line, error));
+        }
+
+        ImportReport report() {
+            return new ImportReport(total, imported, failed, List.copyOf(errors), failed > errors.size());
+        }
+    }
+}
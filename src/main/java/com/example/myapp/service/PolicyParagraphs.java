@@ -0,0 +1,46 @@
+package com.example.myapp.service;
+
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Paragrafi di una policy per il confronto tra versioni: il testo viene diviso sulle righe vuote
+ * e ogni paragrafo normalizzato (NFC, spazi compressi) come per la chiave di {@link AnalysisCache},
+ * così riformattazioni e spostamenti di paragrafi non contano come modifiche.
+ */
+final class PolicyParagraphs {
+    private PolicyParagraphs() {}
+
+    private static final Pattern BLANK_LINE = Pattern.compile("\\R\\s*\\R");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    static Set<String> of(String text) {
+        Set<String> paragraphs = new HashSet<>();
+        for (String raw : BLANK_LINE.split(Normalizer.normalize(text, Normalizer.Form.NFC))) {
+            String p = WHITESPACE.matcher(raw).replaceAll(" ").trim();
+            if (!p.isEmpty()) paragraphs.add(p);
+        }
+        return paragraphs;
+    }
+
+    /** Jaccard |A ∩ B| / |A ∪ B| tra i paragrafi di due versioni (1 = stessi paragrafi). */
+    static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) return 1;
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int common = 0;
+        for (String p : smaller) if (larger.contains(p)) common++;
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    /** Esito del confronto tra la versione precedente e la nuova. */
+    record Diff(boolean added, boolean removed) {
+        static Diff between(Set<String> previous, Set<String> current) {
+            return new Diff(!previous.containsAll(current), !current.containsAll(previous));
+        }
+
+        boolean unchanged() { return !added && !removed; }
+    }
+}
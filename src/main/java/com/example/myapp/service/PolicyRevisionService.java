@@ -0,0 +1,156 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.*;
+import com.example.myapp.entity.Analysis;
+import com.example.myapp.entity.Policy;
+import com.example.myapp.repository.AnalysisRepository;
+import com.example.myapp.repository.PolicyRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Analisi incrementale delle revisioni di una policy.
+ * La versione precedente è quella indicata dal client o, se manca, la policy dell'utente più simile
+ * tra le ultime app.policies.revision.candidates (Jaccard sui paragrafi, almeno
+ * app.policies.revision.min-similarity). Il confronto è per paragrafi: l'analyzer non dice su quali
+ * paragrafi si basa ogni elemento, quindi gli elementi da rianalizzare dipendono dal tipo di modifica:
+ * <ul>
+ *   <li>nessuna modifica: si riusa tutta l'analisi precedente;</li>
+ *   <li>solo paragrafi aggiunti: solo gli elementi non PRESENT (il testo nuovo può solo coprirli);</li>
+ *   <li>solo paragrafi rimossi: solo gli elementi PRESENT/AMBIGUOUS (possono aver perso il supporto);</li>
+ *   <li>aggiunte e rimozioni: tutti.</li>
+ * </ul>
+ * Gli elementi mancanti nell'analisi precedente (checklist cambiata) vengono sempre rianalizzati.
+ */
+@Slf4j
+@Service
+public class PolicyRevisionService {
+
+    private final PolicyRepository policyRepo;
+    private final AnalysisRepository analysisRepo;
+    private final AnalyzerService analyzerService;
+    private final AnalyzerToolBundle toolBundle;
+    private final PolicyService policyService;
+    private final int candidates;
+    private final double minSimilarity;
+
+    public PolicyRevisionService(PolicyRepository policyRepo,
+                                 AnalysisRepository analysisRepo,
+                                 AnalyzerService analyzerService,
+                                 AnalyzerToolBundle toolBundle,
+                                 PolicyService policyService,
+                                 @Value("${app.policies.revision.candidates:20}") int candidates,
+                                 @Value("${app.policies.revision.min-similarity:0.6}") double minSimilarity) {
+        this.policyRepo = policyRepo;
+        this.analysisRepo = analysisRepo;
+        this.analyzerService = analyzerService;
+        this.toolBundle = toolBundle;
+        this.policyService = policyService;
+        this.candidates = Math.max(1, candidates);
+        this.minSimilarity = minSimilarity;
+    }
+
+    public RevisionResponse analyzeRevision(RevisionRequest req, Long userId) {
+        if (req == null) throw new IllegalArgumentException("Request must not be null");
+        if (userId == null) throw new IllegalArgumentException("userId is required");
+        if (req.text() == null || req.text().isBlank()) throw new IllegalArgumentException("text is required");
+
+        Set<String> current = PolicyParagraphs.of(req.text());
+        Match previous = req.previousPolicyId() != null
+                ? explicit(req.previousPolicyId(), userId, current)
+                : mostSimilar(userId, current);
+        String previousJson = previous != null ? firstAnalysis(previous.id()) : null;
+
+        List<String> checklist = toolBundle.checklistItems().stream().map(AnalyzerToolBundle.ChecklistItem::id).toList();
+        Set<String> rerun = previousJson != null
+                ? rerunIds(checklist, previousJson, PolicyParagraphs.Diff.between(previous.paragraphs(), current))
+                : new LinkedHashSet<>(checklist);
+
+        // tutto da rifare: analisi completa, che passa anche dalla cache
+        String resJson = rerun.size() >= checklist.size()
+                ? analyzerService.analyze(req.text())
+                : analyzerService.reanalyze(req.text(), previousJson, rerun);
+
+        Policy saved = policyService.addPolicyVersionAndAnalysis(
+                new SaveResultRequest(req.text(), resJson, userId),
+                previous != null ? previous.id() : null);
+
+        int rerunCount = Math.min(rerun.size(), checklist.size());
+        log.info("Policy {} (v{}): {} items re-analyzed, {} reused", saved.getId(), saved.getVersion(),
+                rerunCount, checklist.size() - rerunCount);
+        return new RevisionResponse(saved.getId(), saved.getPreviousVersionId(), saved.getVersion(),
+                previous != null ? previous.similarity() : 0, rerunCount, checklist.size() - rerunCount, resJson);
+    }
+
+    /** Tutte le versioni della catena a cui appartiene la policy, dalla prima. */
+    public List<PolicyVersion> history(Long policyId, Long userId) {
+        if (policyId == null) throw new IllegalArgumentException("policyId is required");
+        Policy policy = owned(policyId, userId);
+        Long root = policy.getRootId() != null ? policy.getRootId() : policy.getId();
+        return policyRepo.findVersions(root, userId);
+    }
+
+    static Set<String> rerunIds(List<String> checklist, String previousJson, PolicyParagraphs.Diff diff) {
+        Map<String, AnalysisItemStatus> previous = new HashMap<>();
+        try {
+            for (AnalysisItem item : AnalysisJsonParser.parse(previousJson).items()) {
+                if (item.checklistId() != null) previous.put(item.checklistId(), item.status());
+            }
+        } catch (IllegalArgumentException e) {
+            return new LinkedHashSet<>(checklist); // analisi precedente illeggibile: si rifà tutto
+        }
+
+        Set<String> rerun = new LinkedHashSet<>();
+        for (String id : checklist) {
+            AnalysisItemStatus status = previous.get(id);
+            boolean again;
+            if (status == null || status == AnalysisItemStatus.UNKNOWN) again = true;
+            else if (diff.unchanged()) again = false;
+            else if (diff.added() && diff.removed()) again = true;
+            else if (diff.added()) again = status != AnalysisItemStatus.PRESENT;
+            else again = status == AnalysisItemStatus.PRESENT || status == AnalysisItemStatus.AMBIGUOUS;
+            if (again) rerun.add(id);
+        }
+        return rerun;
+    }
+
+    private Match explicit(Long previousPolicyId, Long userId, Set<String> current) {
+        Policy previous = owned(previousPolicyId, userId);
+        Set<String> paragraphs = PolicyParagraphs.of(previous.getContent());
+        return new Match(previous.getId(), paragraphs, PolicyParagraphs.similarity(paragraphs, current));
+    }
+
+    private Match mostSimilar(Long userId, Set<String> current) {
+        Match best = null;
+        for (Policy candidate : policyRepo.findRecent(userId, PageRequest.of(0, candidates))) {
+            Set<String> paragraphs = PolicyParagraphs.of(candidate.getContent());
+            double similarity = PolicyParagraphs.similarity(paragraphs, current);
+            if (similarity >= minSimilarity && (best == null || similarity > best.similarity())) {
+                best = new Match(candidate.getId(), paragraphs, similarity);
+            }
+        }
+        return best;
+    }
+
+    private String firstAnalysis(Long policyId) {
+        List<Analysis> analyses = analysisRepo.findByPolicy_IdOrderByCreatedAtAsc(policyId);
+        return analyses.isEmpty() ? null : analyses.get(0).getData();
+    }
+
+    private Policy owned(Long policyId, Long userId) {
+        return policyRepo.findById(policyId)
+                .filter(p -> p.getUser().getId().equals(userId))
+                .orElseThrow(() -> new EntityNotFoundException("policy not found: " + policyId));
+    }
+
+    private record Match(Long id, Set<String> paragraphs, double similarity) {}
+}
@@ -2,46 +2,58 @@ package com.example.myapp.service;
 
 import com.example.myapp.dto.*;
 import com.example.myapp.entity.Analysis;
+import com.example.myapp.entity.AnalysisItemEntry;
 import com.example.myapp.entity.Policy;
 import com.example.myapp.entity.User;
+import com.example.myapp.repository.AnalysisItemRepository;
 import com.example.myapp.repository.AnalysisRepository;
 import com.example.myapp.repository.PolicyRepository;
 import com.example.myapp.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
 
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.attribute.PosixFilePermission.*;
-
 @Slf4j
 @Service
 public class PolicyService {
 
     private final AnalysisRepository analysisRepo;
+    private final AnalysisItemRepository analysisItemRepo;
     private final PolicyRepository policyRepo;
     private final UserRepository userRepo;
-
-
-    public PolicyService(AnalysisRepository analysisRepo, PolicyRepository policyRepo, UserRepository userRepo) {
+    private final AnalyzerService analyzerService;
+    private final int defaultPageSize;
+    private final long countTtlNanos;
+    private final int countCacheSize;
+    // ordine di inserimento = ordine di caricamento; sincronizzata su se stessa
+    private final LinkedHashMap<Long, CachedCount> policyCounts = new LinkedHashMap<>();
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+
+    public PolicyService(AnalysisRepository analysisRepo, AnalysisItemRepository analysisItemRepo,
+                         PolicyRepository policyRepo, UserRepository userRepo,
+                         AnalyzerService analyzerService,
+                         @Value("${app.policies.page-size:6}") int defaultPageSize,
+                         @Value("${app.policies.count-cache-ttl:PT30S}") Duration countCacheTtl,
+                         @Value("${app.policies.count-cache-size:10000}") int countCacheSize) {
         this.analysisRepo = analysisRepo;
+        this.analysisItemRepo = analysisItemRepo;
         this.policyRepo = policyRepo;
         this.userRepo = userRepo;
+        this.analyzerService = analyzerService;
+        this.defaultPageSize = defaultPageSize;
+        this.countTtlNanos = countCacheTtl.toNanos();
+        this.countCacheSize = countCacheSize;
     }
 
     /**
@@ -53,6 +65,17 @@ public class PolicyService {
      */
     @Transactional
     public void addPolicyAndAnalysis(SaveResultRequest req) {
+        addPolicyVersionAndAnalysis(req, null);
+    }
+
+    /**
+     * Come {@link #addPolicyAndAnalysis}, ma se {@code previousPolicyId} non è null la nuova Policy
+     * viene salvata come versione successiva di quella (che deve appartenere allo stesso utente).
+     *
+     * @return la Policy salvata (id, version e catena già valorizzati)
+     */
+    @Transactional
+    public Policy addPolicyVersionAndAnalysis(SaveResultRequest req, Long previousPolicyId) {
         // Validazioni minime (meglio usare anche Bean Validation a livello DTO)
         if (req == null) throw new IllegalArgumentException("Request must not be null");
         if (req.userId() == null) throw new IllegalArgumentException("userId is required");
@@ -67,15 +90,39 @@ public class PolicyService {
 
         // Crea e salva Policy
         Policy policy = new Policy(user, req.text(), now);
+        if (previousPolicyId != null) {
+            Policy previous = policyRepo.findById(previousPolicyId)
+                    .filter(p -> p.getUser().getId().equals(user.getId()))
+                    .orElseThrow(() -> new EntityNotFoundException("policy not found: " + previousPolicyId));
+            policy.revise(previous);
+        }
         policy = policyRepo.save(policy);
 
-        // Crea e salva Analysis collegata
+        // Crea e salva Analysis collegata, con voto e conteggi calcolati una volta sola
+        AnalysisResult parsed = AnalysisJsonParser.parse(req.resJson());
         Analysis analysis = new Analysis(policy, req.resJson(), now);
+        analysis.applyScore(parsed.score());
         analysis = analysisRepo.save(analysis);
 
-        //log.info("Created Policy id={} and Analysis id={} for user={}", policy.getId(), analysis.getId(), user.getId());
+        // Elementi in analysis_item (insert in batch, vedi hibernate.jdbc.batch_size)
+        analysisItemRepo.saveAll(itemEntries(analysis, parsed));
+
+        evictPolicyCount(user.getId());
 
+        //log.info("Created Policy id={} and Analysis id={} for user={}", policy.getId(), analysis.getId(), user.getId());
+        return policy;
+    }
+    /** Righe di analysis_item per gli elementi dell'analisi (id senza "-" finale, max 64 caratteri). */
+    static List<AnalysisItemEntry> itemEntries(Analysis analysis, AnalysisResult parsed) {
+        List<AnalysisItemEntry> items = new ArrayList<>(parsed.items().size());
+        for (AnalysisItem item : parsed.items()) {
+            String itemId = item.checklistId();
+            if (itemId == null || itemId.isEmpty() || itemId.length() > 64) continue;
+            items.add(new AnalysisItemEntry(analysis, itemId, item.status(), item.reasoning()));
+        }
+        return items;
     }
+
     @Transactional
     public GetResult1 getPolicyAndAnalysis(Long policyId) {
         // Validazioni minime (meglio usare anche Bean Validation a livello DTO)
@@ -94,160 +141,125 @@ public class PolicyService {
         if(analysis == null){throw new EntityNotFoundException("analysis not found");};
         return new GetResult1(policy.getContent(),analysis.getData());
         //log.info("Created Policy id={} and Analysis id={} for user={}", policy.getId(), analysis.getId(), user.getId());
-
     }
 
+    /**
+     * @throws IllegalArgumentException se il body non è "userId / page" o page è minore di 1
+     */
     @Transactional
-    public UserPoliciesList getPolicies(StringDto req) {
-        UserPoliciesList result;
-        try{
-            Long userId = Long.parseLong( req.stringa().split(" / ")[0] );
-            if (userId == null) throw new IllegalArgumentException("Request must not be null");
-            int page = Integer.parseInt( req.stringa().split(" / ")[1] );
-            int start = (page * 6 ) -6;
-            int end = Math.min(page * 6, policyRepo.findByUser_IdOrderByCreatedAtDesc(userId).size());
-
-            List<Policy> list = policyRepo.findByUser_IdOrderByCreatedAtDesc( userId ).subList(start,end);
-            List<ListItem> returnList = list.stream().map(item->{
-                String textToReturn;
-                try{
-                    textToReturn = item.getContent().substring(0,401).concat("...");
-                }catch(IndexOutOfBoundsException e){
-                    textToReturn = item.getContent();
-                }
-
-                Long idToReturn = item.getId();
-                int resToReturn = getResult(analysisRepo.findByPolicy_IdOrderByCreatedAtAsc(item.getId()).get(0).getData());
-                /*int resToReturn = analysisRepo.findByPolicy_IdOrderByCreatedAtAsc(item.getId())
-                        .stream()
-                        .findFirst()                      // evita IndexOutOfBounds
-                        .map(Analysis::getData)
-                        .filter(Objects::nonNull)
-                        .map(this::getResult)
-                        .orElseThrow(() -> new NoSuchElementException("No analysis found for policy"));*/
-                OffsetDateTime dateToReturn = item.getCreatedAt();
-                return new ListItem(textToReturn,resToReturn,idToReturn,dateToReturn);
-            }).toList();
-            //List<Policy> policies = policyRepo.findByUser_IdOrderByCreatedAtDesc(userId);
-
-            result = new UserPoliciesList(returnList);
-
-        }catch(Exception e){
-            e.printStackTrace();
-            throw new RuntimeException("Qualche errore... ");
+    public UserPoliciesList getPolicies(StringDto req, Integer size, String sort, int minScore) {
+        if (req == null || req.stringa() == null) throw new IllegalArgumentException("Request must not be null");
+        String[] parts = req.stringa().split(" / ");
+        if (parts.length != 2) throw new IllegalArgumentException("Request must be \"userId / page\"");
+        Long userId = Long.parseLong(parts[0].trim());
+        int page = Integer.parseInt(parts[1].trim());
+        if (page < 1) throw new IllegalArgumentException("page must be >= 1");
+
+        int pageSize = pageSize(size);
+        boolean byScore = "score".equalsIgnoreCase(sort);
+
+        // 1) id + voto precalcolato della pagina richiesta (ordinamento/filtro/LIMIT in SQL)
+        List<PolicyScoreRow> rows = policyRepo.findPageWithScore(userId, minScore, byScore,
+                pageSize, (long) (page - 1) * pageSize);
+
+        // 2) anteprime delle sole policy della pagina
+        Map<Long, PolicyPreview> previews = new HashMap<>();
+        if (!rows.isEmpty()) {
+            policyRepo.findPreviewsByIds(rows.stream().map(PolicyScoreRow::getId).toList())
+                    .forEach(p -> previews.put(p.id(), p));
         }
-        return result;
+
+        // una policy cancellata tra le due query non ha anteprima: viene saltata
+        List<ListItem> returnList = rows.stream().filter(row -> previews.containsKey(row.getId())).map(row->{
+            PolicyPreview item = previews.get(row.getId());
+            String textToReturn = item.contentLength() != null && item.contentLength() >= Policy.PREVIEW_LENGTH
+                    ? item.preview().concat("...")
+                    : item.preview();
+
+            Long idToReturn = item.id();
+            // NULL solo per analisi precedenti a V9 non ancora ricalcolate dal backfill
+            int resToReturn = row.getScore() != null ? row.getScore() : 0;
+            OffsetDateTime dateToReturn = item.createdAt();
+            return new ListItem(textToReturn,resToReturn,idToReturn,dateToReturn);
+        }).toList();
+
+        return new UserPoliciesList(returnList);
     }
 
+    /** Dimensione pagina richiesta, o quella di default (app.policies.page-size), al massimo 100. */
+    private int pageSize(Integer size) {
+        if (size == null || size <= 0) return defaultPageSize;
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
 
-    private int getResult(String resJson){
-        int missings = countOccurrences(resJson, "MISSING");
-        System.out.println("Missings: "+missings);
-        int ambiguos = countOccurrences(resJson, "AMBIGUOUS");
-        System.out.println("Ambiguos: "+ambiguos);
-        int present = countOccurrences(resJson, "PRESENT");
-        System.out.println("Present: "+present);
-        int max = missings + ambiguos + present;
-        int voto = (int)Math.ceil((((double)present+ambiguos*0.25)/(double)max)*10);
+    public StringDto analyzePolicy1(StringDto policyText) {
+        if (policyText == null) throw new IllegalArgumentException("Request must not be null");
+        return new StringDto(analyzerService.analyze(policyText.stringa()));
+    }
 
-        System.out.println("Voto: "+voto);
-        return voto;
+    public PolicyCount numPages(StringDto userId, Integer size){
+        Long id = Long.parseLong(userId.stringa());
+        int pageSize = pageSize(size);
+        long total = countPolicies(id);
+        int pages = (int) ((total + pageSize - 1) / pageSize);
+        return new PolicyCount(String.valueOf(total), total, pages, pageSize);
     }
 
-    private int countOccurrences(String text, String sub) {
-        // Se una delle due stringhe è nulla o vuota, non ci sono occorrenze.
-        if (text == null || sub == null || text.isEmpty() || sub.isEmpty()) {
-            return 0;
+    /**
+     * COUNT(*) in SQL, tenuto in cache per app.policies.count-cache-ttl; invalidato da addPolicyAndAnalysis.
+     * La cache tiene al massimo app.policies.count-cache-size utenti.
+     */
+    private long countPolicies(Long userId) {
+        long now = System.nanoTime();
+        synchronized (policyCounts) {
+            CachedCount cached = policyCounts.get(userId);
+            if (cached != null && now - cached.loadedAt() < countTtlNanos) return cached.count();
         }
 
-        int count = 0;
-        int lastIndex = 0;
-
-        // Continua a cercare la sottostringa finché la trova.
-        while (lastIndex != -1) {
-            // Cerca la sottostringa a partire dall'ultimo indice trovato + 1
-            lastIndex = text.indexOf(sub, lastIndex);
-
-            // Se la sottostringa è stata trovata, incrementa il contatore
-            // e aggiorna l'indice di partenza per la prossima ricerca.
-            if (lastIndex != -1) {
-                count++;
-                lastIndex += sub.length(); // Sposta l'indice dopo la sottostringa trovata
-            }
+        long count = policyRepo.countByUser_Id(userId);
+        synchronized (policyCounts) {
+            // remove + put: la voce ricaricata va in coda
+            policyCounts.remove(userId);
+            policyCounts.put(userId, new CachedCount(count, now));
+            dropExpired(now);
         }
         return count;
     }
 
-    public StringDto analyzePolicy1(StringDto policyText) {
-        Path projectRoot = Paths.get(System.getProperty("user.dir")).toAbsolutePath();
-        Path policiesDir = projectRoot.resolve("policies");
-        Path outputsDir  = projectRoot.resolve("outputs");
-        Path inputFile   = policiesDir.resolve("policy.txt");
-
-        try {
-            // 1) Ensure runtime dirs exist (under the project folder)
-            Files.createDirectories(policiesDir);
-            Files.createDirectories(outputsDir);
-
-            // 2) Write the input policy
-            Files.writeString(inputFile, policyText.stringa(), StandardCharsets.UTF_8, CREATE, TRUNCATE_EXISTING);
-
-            // 3) Prepare a temp tool dir and extract script + companions into it
-            Path toolDir = Files.createTempDirectory("policy-tool-");
-            Path exe     = extractTo(toolDir.resolve("policy-analyzer1"),
-                    "com/example/myapp/scripts/policy-analyzer");
-            // JSON (rename here if your file has a different name)
-            extractTo(toolDir.resolve("checklist.json"),
-                    "com/example/myapp/scripts/checklist.json");
-            // .env (ensure your build includes dotfiles; otherwise rename resource and still write as ".env")
-            extractTo(toolDir.resolve(".env"),
-                    "com/example/myapp/scripts/.env");
-
-            // Make the script executable (Linux/macOS)
-            try {
-                Files.setPosixFilePermissions(exe, EnumSet.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE));
-            } catch (UnsupportedOperationException ignore) {
-                exe.toFile().setExecutable(true, true);
-            }
-
-            // 4) Run with cwd = toolDir so relative reads (.env, checklist.json) work
-            ProcessRunner.runScript(
-                    List.of(exe.toString(), inputFile.toString(), "--ids", "all"),
-                    toolDir.toFile()
-            );
-
-            // 5) Copy the produced output back into the project outputs/
-            Path tmpOut = toolDir.resolve("outputs").resolve("analysis.json");
-            Files.createDirectories(outputsDir);
-            Files.copy(tmpOut, outputsDir.resolve("analysis.json"), REPLACE_EXISTING);
-
-            String risposta = Files.readString(outputsDir.resolve("analysis.json"), StandardCharsets.UTF_8);
-            return new StringDto(risposta);
-
-        } catch (Exception e) {
-            throw new RuntimeException("Analysis failed", e);
+    /** Le voci sono in ordine di caricamento: quelle scadute (o oltre il limite) sono in testa. */
+    private void dropExpired(long now) {
+        Iterator<CachedCount> it = policyCounts.values().iterator();
+        while (it.hasNext()) {
+            CachedCount c = it.next();
+            if (now - c.loadedAt() < countTtlNanos && policyCounts.size() <= countCacheSize) break;
+            it.remove();
         }
     }
 
-    /** Extract a classpath resource to a target file (overwrites if exists). */
-    private static Path extractTo(Path target, String resourcePath) throws Exception {
-        try (var in = Objects.requireNonNull(
-                Thread.currentThread().getContextClassLoader().getResourceAsStream(resourcePath),
-                "Missing resource: " + resourcePath)) {
-            Files.createDirectories(target.getParent());
-            Files.copy(in, target, REPLACE_EXISTING);
-            target.toFile().deleteOnExit();
-            return target;
+    void evictPolicyCount(Long userId) {
+        removePolicyCount(userId);
+        // di nuovo dopo il commit: un count letto nel frattempo vedrebbe ancora il valore vecchio
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { removePolicyCount(userId); }
+            });
         }
     }
 
-    public StringDto numPages(StringDto userId){
-        System.out.println(userId.stringa());
-        Long id = Long.parseLong(userId.stringa());
-        //User user = userRepo.findById(id).orElseThrow(()->new EntityNotFoundException("User not found: "+id));
-        int size = policyRepo.findByUser_IdOrderByCreatedAtDesc(id).size();
-        return new StringDto(String.valueOf(size));
+    private void removePolicyCount(Long userId) {
+        synchronized (policyCounts) {
+            policyCounts.remove(userId);
+        }
+    }
 
+    /** Utenti con il count in cache (per i test). */
+    int cachedCounts() {
+        synchronized (policyCounts) {
+            return policyCounts.size();
+        }
     }
 
+    private record CachedCount(long count, long loadedAt) {}
+
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.example.myapp.service;
+
+import com.example.myapp.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.function.IntSupplier;
+
+/**
+ * Cancella da refresh_token i token scaduti e quelli revocati da più di
+ * app.auth.refresh-purge.revoked-retention (contata da revoked_at), a blocchi di app.auth.refresh-purge.batch-size righe,
+ * ognuno nella sua transazione (nessun lock lungo sulla tabella).
+ * Ogni giro si ferma dopo max-batches blocchi per tipo; il resto lo prende il giro successivo.
+ * Metriche: auth.refresh_token.purged (tag reason=expired|revoked) e auth.refresh_token.purge (durata).
+ */
+@Slf4j
+@Component
+public class RefreshTokenPurge {
+
+    private final RefreshTokenRepository refreshRepo;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration revokedRetention;
+
+    private final Counter expiredPurged;
+    private final Counter revokedPurged;
+    private final Timer duration;
+
+    public RefreshTokenPurge(RefreshTokenRepository refreshRepo,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.auth.refresh-purge.batch-size:1000}") int batchSize,
+                             @Value("${app.auth.refresh-purge.max-batches:100}") int maxBatches,
+                             @Value("${app.auth.refresh-purge.revoked-retention:PT1H}") Duration revokedRetention) {
+        this.refreshRepo = refreshRepo;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatches = Math.max(1, maxBatches);
+        this.revokedRetention = revokedRetention;
+
+        this.expiredPurged = Counter.builder("auth.refresh_token.purged").tag("reason", "expired").register(meterRegistry);
+        this.revokedPurged = Counter.builder("auth.refresh_token.purged").tag("reason", "revoked").register(meterRegistry);
+        this.duration = Timer.builder("auth.refresh_token.purge").register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.auth.refresh-purge.initial-delay:PT30S}",
+               fixedDelayString = "${app.auth.refresh-purge.interval:PT15M}")
+    public void purge() {
+        duration.record(() -> {
+            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            OffsetDateTime revokedBefore = now.minus(revokedRetention);
+
+            int expired = drain(() -> refreshRepo.deleteExpired(now, batchSize), expiredPurged);
+            int revoked = drain(() -> refreshRepo.deleteRevoked(revokedBefore, batchSize), revokedPurged);
+
+            if (expired + revoked > 0) log.info("Purged {} expired and {} revoked refresh tokens", expired, revoked);
+        });
+    }
+
+    private int drain(IntSupplier deleteBatch, Counter counter) {
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int done = deleteBatch.getAsInt();
+            counter.increment(done);
+            total += done;
+            if (done < batchSize) break;
+        }
+        return total;
+    }
+}
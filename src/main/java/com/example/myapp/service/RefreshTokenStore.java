@@ -0,0 +1,36 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.StoredRefreshToken;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Archivio dei refresh token emessi (per hash SHA-256, vedi TokenHasher), usato da AuthService per rotazione e logout.
+ * Implementazione scelta con app.auth.refresh-store.type: jpa (default, sincrona su refresh_token)
+ * oppure memory (mappa in memoria, scritture su PostgreSQL in differita).
+ */
+public interface RefreshTokenStore {
+
+    void save(StoredRefreshToken token);
+
+    /**
+     * Revoca il token solo se è ancora attivo (non revocato, non scaduto a {@code now}).
+     * È atomica: di due rotazioni concorrenti dello stesso token ne riesce una sola.
+     */
+    Revocation revokeIfActive(byte[] tokenHash, OffsetDateTime now);
+
+    /** Revoca il token, se esiste (logout). */
+    void revoke(byte[] tokenHash);
+
+    List<StoredRefreshToken> findActiveByUser(Long userId, OffsetDateTime now);
+
+    enum Revocation {
+        /** Era attivo e ora è revocato. */
+        REVOKED,
+        /** Hash sconosciuto. */
+        NOT_FOUND,
+        /** Già revocato o scaduto. */
+        INACTIVE
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.myapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 dei refresh token (32 byte, salvati in refresh_token.token_hash come bytea).
+ * Un MessageDigest e un buffer per thread: niente getInstance né array UTF-8 intermedio a ogni
+ * chiamata. I token sono JWT (ASCII), quindi i char vengono copiati nel buffer così come sono;
+ * un token non ASCII passa da getBytes(UTF_8) e dà lo stesso hash.
+ * Il buffer ha dimensione fissa (BUFFER_SIZE, più di un JWT): un input più lungo viene passato al
+ * digest a blocchi, così un body enorme non resta allocato sul thread della richiesta.
+ */
+public final class TokenHasher {
+    private TokenHasher() {}
+
+    public static final int HASH_LENGTH = 32;
+
+    static final int BUFFER_SIZE = 2048;
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    public static byte[] sha256(String token) {
+        State s = STATE.get();
+        MessageDigest md = s.digest;
+        byte[] buf = s.buffer;
+        int len = token.length();
+        for (int start = 0; start < len; start += buf.length) {
+            int n = Math.min(buf.length, len - start);
+            for (int i = 0; i < n; i++) {
+                char c = token.charAt(start + i);
+                if (c >= 0x80) {
+                    // blocchi già passati al digest: si riparte dall'inizio in UTF-8
+                    md.reset();
+                    return md.digest(token.getBytes(StandardCharsets.UTF_8));
+                }
+                buf[i] = (byte) c;
+            }
+            md.update(buf, 0, n);
+        }
+        // digest() azzera lo stato: il MessageDigest è subito riusabile
+        return md.digest();
+    }
+
+    /** Dimensione del buffer del thread corrente (per i test). */
+    static int bufferSize() {
+        return STATE.get().buffer.length;
+    }
+
+    private static final class State {
+        final MessageDigest digest;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        State() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+}
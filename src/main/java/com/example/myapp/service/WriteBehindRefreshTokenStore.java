@@ -0,0 +1,271 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.StoredRefreshToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * RefreshTokenStore in memoria (app.auth.refresh-store.type=memory): rotazione e logout leggono e
+ * scrivono solo due mappe concorrenti (per hash e per utente); le modifiche vengono accodate e scritte
+ * su refresh_token a blocchi ogni app.auth.refresh-store.flush-interval. All'avvio la mappa viene
+ * ricaricata con i token non ancora scaduti, revocati compresi, così gli errori restano quelli di jpa.
+ * La revoca resta atomica (compute sulla mappa). In caso di crash si perdono le modifiche dell'ultimo
+ * intervallo: un token revocato in quel momento torna valido fino alla sua scadenza.
+ * Da usare con una sola istanza dell'applicazione.
+ * Metriche: auth.refresh_store.size, auth.refresh_store.pending, auth.refresh_store.flushed,
+ * auth.refresh_store.flush.errors.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.auth.refresh-store.type", havingValue = "memory")
+public class WriteBehindRefreshTokenStore implements RefreshTokenStore {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO refresh_token (user_id, token_hash, issued_at, expires_at, revoked, revoked_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (token_hash) DO UPDATE SET revoked = refresh_token.revoked OR EXCLUDED.revoked, " +
+            "revoked_at = COALESCE(refresh_token.revoked_at, EXCLUDED.revoked_at)";
+    private static final String REVOKE_SQL =
+            "UPDATE refresh_token SET revoked = TRUE, revoked_at = ? WHERE token_hash = ? AND NOT revoked";
+    private static final String REPLAY_SQL =
+            "SELECT user_id, token_hash, issued_at, expires_at, revoked_at FROM refresh_token WHERE expires_at > ?";
+
+    // chiave = ByteBuffer sull'hash: equals/hashCode sul contenuto, a differenza di byte[]
+    private final ConcurrentMap<ByteBuffer, StoredRefreshToken> byHash = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<ByteBuffer>> byUser = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<Change> queue = new LinkedBlockingQueue<>();
+    // modifiche di un flush fallito per un errore transitorio; usata solo sotto il monitor (flush, shutdown)
+    private final List<Change> retry = new ArrayList<>();
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final Duration revokedRetention;
+    private final Counter flushed;
+    private final Counter flushErrors;
+
+    public WriteBehindRefreshTokenStore(JdbcTemplate jdbc,
+                                        PlatformTransactionManager txManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${app.auth.refresh-store.flush-batch-size:500}") int batchSize,
+                                        @Value("${app.auth.refresh-purge.revoked-retention:PT1H}") Duration revokedRetention) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.revokedRetention = revokedRetention;
+
+        this.flushed = Counter.builder("auth.refresh_store.flushed").register(meterRegistry);
+        this.flushErrors = Counter.builder("auth.refresh_store.flush.errors").register(meterRegistry);
+        Gauge.builder("auth.refresh_store.size", byHash, ConcurrentMap::size).register(meterRegistry);
+        Gauge.builder("auth.refresh_store.pending", queue, LinkedBlockingQueue::size).register(meterRegistry);
+    }
+
+    /** Prima di servire richieste: un refresh arrivato prima del replay risulterebbe sconosciuto. */
+    @PostConstruct
+    public void replay() {
+        jdbc.query(REPLAY_SQL, rs -> {
+            index(new StoredRefreshToken(
+                    rs.getLong("user_id"),
+                    rs.getBytes("token_hash"),
+                    rs.getObject("issued_at", OffsetDateTime.class),
+                    rs.getObject("expires_at", OffsetDateTime.class),
+                    rs.getObject("revoked_at", OffsetDateTime.class)));
+        }, OffsetDateTime.now(ZoneOffset.UTC));
+        log.info("Loaded {} refresh tokens into the in-memory store", byHash.size());
+    }
+
+    @Override
+    public void save(StoredRefreshToken token) {
+        // dentro una transazione (signup) solo dopo il commit: l'utente potrebbe non esistere ancora
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { add(token); }
+            });
+        } else {
+            add(token);
+        }
+    }
+
+    @Override
+    public Revocation revokeIfActive(byte[] tokenHash, OffsetDateTime now) {
+        Revocation[] outcome = { Revocation.NOT_FOUND };
+        StoredRefreshToken updated = byHash.computeIfPresent(key(tokenHash), (h, t) -> {
+            if (!t.isActive(now)) {
+                outcome[0] = Revocation.INACTIVE;
+                return t;
+            }
+            outcome[0] = Revocation.REVOKED;
+            return revoked(t, now);
+        });
+        if (outcome[0] == Revocation.REVOKED) queue.add(new Change(updated, true));
+        return outcome[0];
+    }
+
+    @Override
+    public void revoke(byte[] tokenHash) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        StoredRefreshToken t = byHash.computeIfPresent(key(tokenHash), (h, old) -> old.revoked() ? old : revoked(old, now));
+        if (t != null) queue.add(new Change(t, true));
+    }
+
+    @Override
+    public List<StoredRefreshToken> findActiveByUser(Long userId, OffsetDateTime now) {
+        Set<ByteBuffer> hashes = byUser.get(userId);
+        if (hashes == null) return List.of();
+        List<StoredRefreshToken> active = new ArrayList<>();
+        for (ByteBuffer h : hashes) {
+            StoredRefreshToken t = byHash.get(h);
+            if (t != null && t.isActive(now)) active.add(t);
+        }
+        return active;
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.refresh-store.flush-interval:PT1S}")
+    public synchronized void flush() {
+        while (true) {
+            List<Change> batch = new ArrayList<>(retry);
+            retry.clear();
+            queue.drainTo(batch, Math.max(0, batchSize - batch.size()));
+            if (batch.isEmpty()) return;
+
+            try {
+                tx.executeWithoutResult(status -> write(batch));
+                flushed.increment(batch.size());
+            } catch (DataIntegrityViolationException e) {
+                // una riga non valida (es. utente cancellato) non deve bloccare le altre
+                log.warn("Refresh token flush failed, retrying {} changes one by one", batch.size(), e);
+                writeOneByOne(batch);
+            } catch (RuntimeException e) {
+                // database non raggiungibile: si riprova al prossimo giro, nello stesso ordine
+                flushErrors.increment();
+                retry.addAll(batch);
+                log.warn("Refresh token flush failed, {} changes kept for the next attempt", batch.size(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Toglie dalla mappa i token scaduti e quelli revocati da più di app.auth.refresh-purge.revoked-retention,
+     * con la stessa regola con cui RefreshTokenPurge li cancella da refresh_token.
+     */
+    @Scheduled(initialDelayString = "${app.auth.refresh-purge.initial-delay:PT30S}",
+               fixedDelayString = "${app.auth.refresh-purge.interval:PT15M}")
+    public void evictExpired() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime revokedBefore = now.minus(revokedRetention);
+        for (StoredRefreshToken t : byHash.values()) {
+            boolean expired = !t.expiresAt().isAfter(now);
+            boolean purgedRevoked = t.revoked() && t.revokedAt().isBefore(revokedBefore);
+            if (expired || purgedRevoked) forget(t);
+        }
+    }
+
+    // sotto il monitor di flush(): retry si legge solo lì
+    @PreDestroy
+    public synchronized void shutdown() {
+        flush();
+        if (!retry.isEmpty()) log.warn("{} refresh token changes were not written on shutdown", retry.size());
+    }
+
+    private void add(StoredRefreshToken token) {
+        index(token);
+        queue.add(new Change(token, false));
+    }
+
+    /** Toglie il token da entrambe le mappe, se la voce è ancora {@code t} (una revoca concorrente la sostituisce). */
+    private void forget(StoredRefreshToken t) {
+        ByteBuffer key = key(t.tokenHash());
+        if (byHash.remove(key, t)) removeFromUser(t.userId(), key);
+    }
+
+    private void removeFromUser(Long userId, ByteBuffer key) {
+        // compute: atomico rispetto a index, che aggiunge agli insiemi esistenti
+        byUser.computeIfPresent(userId, (u, hashes) -> {
+            hashes.remove(key);
+            return hashes.isEmpty() ? null : hashes;
+        });
+    }
+
+    private void index(StoredRefreshToken token) {
+        ByteBuffer key = key(token.tokenHash());
+        byHash.put(key, token);
+        // compute: atomico rispetto a evictExpired, che rimuove gli insiemi vuoti
+        byUser.compute(token.userId(), (u, hashes) -> {
+            Set<ByteBuffer> set = hashes != null ? hashes : ConcurrentHashMap.newKeySet();
+            set.add(key);
+            return set;
+        });
+    }
+
+    /** Prima gli INSERT (con lo stato revoked attuale), poi le revoche: l'ordine nel blocco resta valido. */
+    private void write(List<Change> batch) {
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> revokes = new ArrayList<>();
+        for (Change c : batch) {
+            StoredRefreshToken t = c.token();
+            if (c.revocation()) {
+                revokes.add(new Object[]{ t.revokedAt(), t.tokenHash() });
+            } else {
+                StoredRefreshToken current = byHash.getOrDefault(key(t.tokenHash()), t);
+                inserts.add(new Object[]{ t.userId(), t.tokenHash(), t.issuedAt(), t.expiresAt(),
+                        current.revoked(), current.revokedAt() });
+            }
+        }
+        if (!inserts.isEmpty()) jdbc.batchUpdate(INSERT_SQL, inserts);
+        if (!revokes.isEmpty()) jdbc.batchUpdate(REVOKE_SQL, revokes);
+    }
+
+    private void writeOneByOne(List<Change> batch) {
+        for (Change c : batch) {
+            try {
+                tx.executeWithoutResult(status -> write(List.of(c)));
+                flushed.increment();
+            } catch (RuntimeException e) {
+                flushErrors.increment();
+                log.warn("Dropping refresh token change for user {}: {}", c.token().userId(), e.getMessage());
+                // token mai scritto: in memoria resterebbe valido solo fino al prossimo riavvio
+                if (!c.revocation()) {
+                    ByteBuffer key = key(c.token().tokenHash());
+                    if (byHash.remove(key) != null) removeFromUser(c.token().userId(), key);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer key(byte[] tokenHash) {
+        return ByteBuffer.wrap(tokenHash);
+    }
+
+    private static StoredRefreshToken revoked(StoredRefreshToken t, OffsetDateTime at) {
+        return new StoredRefreshToken(t.userId(), t.tokenHash(), t.issuedAt(), t.expiresAt(), at);
+    }
+
+    private record Change(StoredRefreshToken token, boolean revocation) {}
+}
@@ -0,0 +1,4 @@
+-- I voti calcolati contando le sottostringhe "PRESENT"/"MISSING"/"AMBIGUOUS" erano sbagliati
+-- (l'analyzer emette gli stati in minuscolo): si azzerano e il backfill li ricalcola col parser JSON.
+UPDATE analysis
+   SET score = NULL, present_count = NULL, ambiguous_count = NULL, missing_count = NULL;
@@ -0,0 +1,16 @@
+-- analysis.data torna JSONB (V5/V6 l'avevano reso TEXT) per poter filtrare/aggregare in PostgreSQL.
+-- Le eventuali righe non JSON vengono conservate come stringa JSON invece di far fallire la migrazione.
+CREATE FUNCTION pg_temp.try_jsonb(t text) RETURNS jsonb AS $$
+BEGIN
+  RETURN t::jsonb;
+EXCEPTION WHEN others THEN
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+ALTER TABLE analysis
+  ALTER COLUMN data TYPE jsonb
+  USING COALESCE(pg_temp.try_jsonb(data), to_jsonb(data));
+
+-- containment (@>) su id/status degli elementi, es. data @> '[{"id":"GDPR_13_2_a","status":"missing"}]'
+CREATE INDEX idx_analysis_data_gin ON analysis USING GIN (data jsonb_path_ops);
@@ -0,0 +1,39 @@
+-- ELEMENTI DELL'ANALISI IN FORMA NORMALIZZATA
+-- Una riga per elemento della checklist di ogni analisi, per statistiche per elemento/articolo
+-- senza scandire i blob JSON. La sequence avanza di 50 (allocationSize in AnalysisItemEntry),
+-- così gli insert possono essere inviati in batch.
+CREATE SEQUENCE analysis_item_id_seq INCREMENT BY 50;
+
+CREATE TABLE analysis_item (
+  id          BIGINT PRIMARY KEY DEFAULT nextval('analysis_item_id_seq'),
+  analysis_id BIGINT NOT NULL REFERENCES analysis(id) ON DELETE CASCADE,
+  item_id     VARCHAR(64) NOT NULL,   -- id di checklist.json, senza "-" finale
+  status      VARCHAR(16) NOT NULL,   -- PRESENT | AMBIGUOUS | MISSING | NOT_REQUIRED | UNKNOWN
+  reasoning   TEXT
+);
+ALTER SEQUENCE analysis_item_id_seq OWNED BY analysis_item.id;
+
+CREATE INDEX idx_analysis_item_item_status ON analysis_item(item_id, status);
+CREATE INDEX idx_analysis_item_analysis    ON analysis_item(analysis_id);
+
+-- righe esistenti, ricavate dal JSONB (stessa normalizzazione di AnalysisItemStatus.from)
+INSERT INTO analysis_item (analysis_id, item_id, status, reasoning)
+SELECT a.id,
+       rtrim(e->>'id', '-'),
+       CASE lower(trim(e->>'status'))
+         WHEN 'present'      THEN 'PRESENT'
+         WHEN 'ambiguous'    THEN 'AMBIGUOUS'
+         WHEN 'ambiguos'     THEN 'AMBIGUOUS'
+         WHEN 'missing'      THEN 'MISSING'
+         WHEN 'not required' THEN 'NOT_REQUIRED'
+         WHEN 'not_required' THEN 'NOT_REQUIRED'
+         WHEN 'not-required' THEN 'NOT_REQUIRED'
+         ELSE 'UNKNOWN'
+       END,
+       e->>'reasoning'
+FROM analysis a
+CROSS JOIN LATERAL jsonb_array_elements(
+  CASE WHEN jsonb_typeof(a.data) = 'array' THEN a.data ELSE '[]'::jsonb END) e
+WHERE jsonb_typeof(e) = 'object'
+  AND e->>'id' IS NOT NULL
+  AND length(rtrim(e->>'id', '-')) BETWEEN 1 AND 64;
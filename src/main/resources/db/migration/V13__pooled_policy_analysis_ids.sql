@@ -0,0 +1,7 @@
+-- ID A BLOCCHI PER POLICY E ANALYSIS
+-- Con IDENTITY Hibernate deve eseguire ogni INSERT subito per leggere l'id, quindi niente batch.
+-- Le sequence dei BIGSERIAL avanzano ora di 50 (allocationSize delle entity, optimizer "pooled"):
+-- un nextval riserva il blocco (v-49 .. v). Anche gli INSERT senza id (DEFAULT nextval) restano
+-- corretti: consumano un blocco intero e ne usano il valore più alto.
+ALTER SEQUENCE policy_id_seq   INCREMENT BY 50;
+ALTER SEQUENCE analysis_id_seq INCREMENT BY 50;
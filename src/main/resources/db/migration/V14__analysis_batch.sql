@@ -0,0 +1,17 @@
+-- ANALISI IN BLOCCO
+-- Un batch raggruppa molti analysis_job dello stesso utente (testi inviati insieme o file .txt
+-- di un archivio zip). I job di un batch vengono salvati come Policy + Analysis quando terminano.
+CREATE TABLE analysis_batch (
+  id          UUID PRIMARY KEY,
+  user_id     BIGINT NOT NULL REFERENCES app_user(id) ON DELETE CASCADE,
+  total       INTEGER NOT NULL,
+  created_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+ALTER TABLE analysis_job
+  ADD COLUMN batch_id UUID REFERENCES analysis_batch(id) ON DELETE CASCADE,
+  ADD COLUMN name     TEXT,                            -- es. nome del file nell'archivio
+  ADD COLUMN persist  BOOLEAN NOT NULL DEFAULT false;  -- salva il risultato con addPolicyAndAnalysis
+
+CREATE INDEX idx_analysis_job_batch ON analysis_job(batch_id, created_at);
+CREATE INDEX idx_analysis_batch_user_created_at ON analysis_batch(user_id, created_at);
@@ -0,0 +1,10 @@
+-- VERSIONI DI UNA POLICY
+-- Ogni revisione punta alla versione precedente e alla prima della catena (root_id):
+-- la storia di una policy è una sola lettura su idx_policy_root_version.
+-- Le policy originali hanno root_id NULL (la radice sono loro) e version 1.
+ALTER TABLE policy
+  ADD COLUMN previous_version_id BIGINT REFERENCES policy(id) ON DELETE SET NULL,
+  ADD COLUMN root_id             BIGINT REFERENCES policy(id) ON DELETE SET NULL,
+  ADD COLUMN version             INTEGER NOT NULL DEFAULT 1;
+
+CREATE INDEX idx_policy_root_version ON policy(root_id, version) WHERE root_id IS NOT NULL;
@@ -0,0 +1,33 @@
+-- TESTO DELLE POLICY COMPRESSO
+-- Il testo completo va in content_gz (gzip, scritto da CompressedTextConverter); content resta
+-- valorizzato solo per le righe non ancora convertite da PolicyContentBackfill.
+-- La lista usa preview (primi 401 caratteri) e content_length, senza toccare il testo completo.
+ALTER TABLE policy
+  ADD COLUMN content_gz     BYTEA,
+  ADD COLUMN preview        TEXT,
+  ADD COLUMN content_length INTEGER;
+
+ALTER TABLE policy ALTER COLUMN content DROP NOT NULL;
+
+UPDATE policy SET preview = left(content, 401), content_length = length(content);
+
+ALTER TABLE policy
+  ALTER COLUMN preview SET NOT NULL,
+  ALTER COLUMN content_length SET NOT NULL,
+  ADD CONSTRAINT policy_content_present CHECK (content IS NOT NULL OR content_gz IS NOT NULL);
+
+-- già compresso: TOAST non deve provare a ricomprimerlo
+ALTER TABLE policy ALTER COLUMN content_gz SET STORAGE EXTERNAL;
+
+-- righe ancora da comprimere: indice parziale, resta vuoto a backfill finito
+CREATE INDEX idx_policy_content_uncompressed ON policy(id) WHERE content IS NOT NULL;
+
+-- analysis.data resta JSONB (indice GIN e report in SQL): compressione TOAST lz4 al posto di pglz
+-- per i valori scritti da qui in poi, se il server è compilato con lz4.
+DO $$
+BEGIN
+  ALTER TABLE analysis ALTER COLUMN data SET COMPRESSION lz4;
+EXCEPTION WHEN feature_not_supported THEN
+  RAISE NOTICE 'lz4 not available, analysis.data keeps the default TOAST compression';
+END;
+$$;
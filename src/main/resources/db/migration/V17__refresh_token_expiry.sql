@@ -0,0 +1,5 @@
+-- PULIZIA REFRESH TOKEN
+-- RefreshTokenPurge cancella a blocchi i token scaduti e quelli revocati da più di
+-- app.auth.refresh-purge.revoked-retention: entrambe le ricerche passano da un indice.
+CREATE INDEX idx_refresh_token_expires_at ON refresh_token(expires_at);
+CREATE INDEX idx_refresh_token_revoked    ON refresh_token(issued_at) WHERE revoked;
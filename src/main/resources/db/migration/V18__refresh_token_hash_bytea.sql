@@ -0,0 +1,8 @@
+-- HASH DEI REFRESH TOKEN COME BYTEA
+-- token_hash era il Base64 (44 caratteri) dello SHA-256 del token: diventa il digest da 32 byte.
+-- Stessi byte di prima, quindi i token già emessi restano validi; l'indice UNIQUE viene ricostruito.
+ALTER TABLE refresh_token
+  ALTER COLUMN token_hash TYPE BYTEA USING decode(token_hash, 'base64');
+
+ALTER TABLE refresh_token
+  ADD CONSTRAINT chk_refresh_token_hash_length CHECK (octet_length(token_hash) = 32);
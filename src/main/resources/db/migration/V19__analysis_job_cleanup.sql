@@ -0,0 +1,5 @@
+-- PULIZIA DEI JOB TERMINATI
+-- AnalysisJobCleanup cancella i job finiti da più di app.analyzer.jobs.retention (testo compreso)
+-- e i batch con tutti i job finiti da allora (i job del batch vanno via in cascata).
+CREATE INDEX idx_analysis_job_finished_at ON analysis_job(finished_at) WHERE batch_id IS NULL;
+CREATE INDEX idx_analysis_batch_created_at ON analysis_batch(created_at);
@@ -0,0 +1,3 @@
+-- Le righe di versioni precedenti della checklist non vengono più lette (la versione fa parte
+-- della chiave): AnalysisCache le cancella all'avvio, a blocchi, passando da questo indice.
+CREATE INDEX idx_analysis_cache_checklist_version ON analysis_cache(checklist_version);
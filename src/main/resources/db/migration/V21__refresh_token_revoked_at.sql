@@ -0,0 +1,13 @@
+-- MOMENTO DELLA REVOCA DEI REFRESH TOKEN
+-- RefreshTokenPurge teneva i token revocati per revoked-retention a partire da issued_at:
+-- un token revocato dopo giorni veniva cancellato subito. revoked_at registra la revoca.
+ALTER TABLE refresh_token ADD COLUMN revoked_at TIMESTAMPTZ;
+
+-- revoche precedenti: il momento non è noto, si conta la retention da adesso
+UPDATE refresh_token SET revoked_at = now() WHERE revoked;
+
+ALTER TABLE refresh_token
+  ADD CONSTRAINT chk_refresh_token_revoked_at CHECK (revoked = (revoked_at IS NOT NULL));
+
+DROP INDEX idx_refresh_token_revoked;
+CREATE INDEX idx_refresh_token_revoked_at ON refresh_token(revoked_at) WHERE revoked;
@@ -0,0 +1,17 @@
+-- ASYNC ANALYSIS JOBS
+-- Una riga per ogni analisi richiesta in modalità asincrona: i job QUEUED/RUNNING
+-- vengono ripresi all'avvio, quindi il lavoro in coda sopravvive a un restart.
+CREATE TABLE analysis_job (
+  id           UUID PRIMARY KEY,
+  user_id      BIGINT REFERENCES app_user(id) ON DELETE CASCADE,
+  status       TEXT NOT NULL,
+  input        TEXT NOT NULL,
+  result       TEXT,
+  error        TEXT,
+  created_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+  started_at   TIMESTAMPTZ,
+  finished_at  TIMESTAMPTZ
+);
+
+CREATE INDEX idx_analysis_job_status_created_at ON analysis_job(status, created_at);
+CREATE INDEX idx_analysis_job_user_created_at   ON analysis_job(user_id, created_at);
@@ -0,0 +1,8 @@
+-- CACHE DEI RISULTATI DELL'ANALYZER
+-- Chiave: SHA-256 del testo normalizzato + versione della checklist usata.
+CREATE TABLE analysis_cache (
+  content_hash      TEXT PRIMARY KEY,
+  checklist_version TEXT NOT NULL,
+  data              TEXT NOT NULL,
+  created_at        TIMESTAMPTZ NOT NULL DEFAULT now()
+);
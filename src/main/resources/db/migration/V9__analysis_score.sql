@@ -0,0 +1,11 @@
+-- PUNTEGGIO PRECALCOLATO
+-- Calcolato una volta al salvataggio dell'analisi; le righe esistenti (score NULL)
+-- vengono riempite dal job di backfill (AnalysisScoreBackfill).
+ALTER TABLE analysis
+  ADD COLUMN score           INTEGER,
+  ADD COLUMN present_count   INTEGER,
+  ADD COLUMN ambiguous_count INTEGER,
+  ADD COLUMN missing_count   INTEGER;
+
+-- righe ancora da calcolare: indice parziale, resta vuoto a backfill finito
+CREATE INDEX idx_analysis_score_pending ON analysis(id) WHERE score IS NULL;
@@ -0,0 +1,95 @@
+package com.example.myapp.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CachingJwtDecoderTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T10:00:00Z"));
+    private final JwtDecoder delegate = mock(JwtDecoder.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 10, meters, clock);
+
+    @Test
+    void secondDecodeIsAHit() {
+        Jwt jwt = jwt("t1", clock.instant().plus(Duration.ofMinutes(15)));
+        when(delegate.decode("t1")).thenReturn(jwt);
+
+        assertThat(decoder.decode("t1")).isSameAs(jwt);
+        assertThat(decoder.decode("t1")).isSameAs(jwt);
+
+        verify(delegate, times(1)).decode("t1");
+        assertThat(lookups("miss")).isEqualTo(1);
+        assertThat(lookups("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntryGoesBackToDelegateAndIsCountedOnce() {
+        Jwt jwt = jwt("t1", clock.instant().plus(Duration.ofMinutes(15)));
+        when(delegate.decode("t1")).thenReturn(jwt);
+        decoder.decode("t1");
+
+        clock.advance(Duration.ofMinutes(15));
+        when(delegate.decode("t1")).thenThrow(new JwtException("expired"));
+
+        assertThatThrownBy(() -> decoder.decode("t1")).isInstanceOf(JwtException.class);
+        assertThat(lookups("expired")).isEqualTo(1);
+        assertThat(lookups("miss")).isEqualTo(1);
+        assertThat(lookups("hit")).isZero();
+        assertThat(meters.get("jwt.decoder.cache.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void authoritiesAreComputedOncePerCachedToken() {
+        Jwt jwt = jwt("t1", clock.instant().plus(Duration.ofMinutes(15)));
+        when(delegate.decode("t1")).thenReturn(jwt);
+        Jwt decoded = decoder.decode("t1");
+        int[] calls = {0};
+
+        decoder.authorities(decoded, j -> { calls[0]++; return List.of(); });
+        decoder.authorities(decoded, j -> { calls[0]++; return List.of(); });
+
+        assertThat(calls[0]).isEqualTo(1);
+        // le chiamate di authorities non contano come lookup
+        assertThat(lookups("hit")).isZero();
+    }
+
+    private double lookups(String result) {
+        return meters.counter("jwt.decoder.cache.lookups", "result", result).count();
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "HS256")
+                .subject("user")
+                .issuedAt(expiresAt.minus(Duration.ofMinutes(15)))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) { this.now = now; }
+
+        void advance(Duration d) { now = now.plus(d); }
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+}
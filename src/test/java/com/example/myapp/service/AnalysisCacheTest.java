@@ -0,0 +1,62 @@
+package com.example.myapp.service;
+
+import com.example.myapp.entity.AnalysisCacheEntry;
+import com.example.myapp.repository.AnalysisCacheRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AnalysisCacheTest {
+
+    private final AnalysisCacheRepository cacheRepo = mock(AnalysisCacheRepository.class);
+    private final AnalyzerToolBundle toolBundle = mock(AnalyzerToolBundle.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private AnalysisCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(toolBundle.checklistVersion()).thenReturn("v2");
+        cache = new AnalysisCache(cacheRepo, toolBundle, meters, true, 10, 1_000_000);
+    }
+
+    @Test
+    void databaseErrorOnGetIsAMiss() {
+        when(cacheRepo.findById(anyString())).thenThrow(new DataAccessResourceFailureException("db down"));
+
+        assertThat(cache.get("k")).isEmpty();
+        assertThat(meters.counter("analyzer.cache.lookups", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    void databaseHitIsKeptInMemory() {
+        when(cacheRepo.findById("k")).thenReturn(Optional.of(new AnalysisCacheEntry("k", "v2", "[]", OffsetDateTime.now())));
+
+        assertThat(cache.get("k")).contains("[]");
+        assertThat(cache.get("k")).contains("[]");
+        verify(cacheRepo, times(1)).findById("k");
+    }
+
+    @Test
+    void purgeDeletesOtherVersionsInBatches() {
+        when(cacheRepo.deleteOtherVersions("v2", 1000)).thenReturn(1000, 1000, 3);
+
+        cache.purgeOtherVersions();
+
+        verify(cacheRepo, times(3)).deleteOtherVersions("v2", 1000);
+    }
+
+    @Test
+    void purgeFailureDoesNotPropagate() {
+        when(cacheRepo.deleteOtherVersions(anyString(), anyInt())).thenThrow(new DataAccessResourceFailureException("db down"));
+
+        cache.purgeOtherVersions();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.AnalysisJobResponse;
+import com.example.myapp.entity.AnalysisJob;
+import com.example.myapp.entity.AnalysisJobStatus;
+import com.example.myapp.repository.AnalysisJobRepository;
+import com.example.myapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class AnalysisJobServiceTest {
+
+    private final AnalysisJobRepository jobRepo = mock(AnalysisJobRepository.class);
+    private final AnalyzerService analyzerService = mock(AnalyzerService.class);
+    private final PolicyService policyService = mock(PolicyService.class);
+    private AnalysisJobService service;
+    private AnalysisJob job;
+
+    @BeforeEach
+    void setUp() {
+        service = new AnalysisJobService(jobRepo, mock(UserRepository.class), analyzerService,
+                policyService, mock(PlatformTransactionManager.class), 1, Duration.ofSeconds(5));
+        job = new AnalysisJob(null, "policy text", OffsetDateTime.now(ZoneOffset.UTC));
+        job.setId(UUID.randomUUID());
+        when(jobRepo.findById(job.getId())).thenReturn(Optional.of(job));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void waiterTimeoutRemovesEntryForJobThatNeverRuns() throws Exception {
+        AnalysisJobResponse r = service.awaitJob(job.getId(), null, Duration.ofMillis(50)).get(2, TimeUnit.SECONDS);
+
+        assertThat(r.status()).isEqualTo("QUEUED");
+        assertThat(service.waitingJobs()).isZero();
+    }
+
+    @Test
+    void entryStaysUntilLastWaiterTimesOut() throws Exception {
+        CompletableFuture<AnalysisJobResponse> shortWait = service.awaitJob(job.getId(), null, Duration.ofMillis(50));
+        CompletableFuture<AnalysisJobResponse> longWait = service.awaitJob(job.getId(), null, Duration.ofMillis(600));
+
+        shortWait.get(2, TimeUnit.SECONDS);
+        assertThat(service.waitingJobs()).isEqualTo(1);
+
+        longWait.get(2, TimeUnit.SECONDS);
+        assertThat(service.waitingJobs()).isZero();
+    }
+
+    @Test
+    void finishedJobCompletesWaiterAndRemovesEntry() throws Exception {
+        when(jobRepo.claim(eq(job.getId()), any())).thenReturn(1);
+        when(jobRepo.save(any(AnalysisJob.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(analyzerService.analyze(anyString())).thenReturn("[]");
+
+        CompletableFuture<AnalysisJobResponse> waiting = service.awaitJob(job.getId(), null, Duration.ofSeconds(5));
+        service.enqueue(null, List.of(job.getId()));
+
+        AnalysisJobResponse r = waiting.get(2, TimeUnit.SECONDS);
+        assertThat(r.status()).isEqualTo(AnalysisJobStatus.DONE.name());
+        assertThat(r.resJson()).isEqualTo("[]");
+        assertThat(service.waitingJobs()).isZero();
+    }
+
+    @Test
+    void failedFinalSaveFallsBackToUpdateAndCompletesWaiter() throws Exception {
+        when(jobRepo.claim(eq(job.getId()), any())).thenReturn(1);
+        when(jobRepo.save(any(AnalysisJob.class))).thenThrow(new DataAccessResourceFailureException("db down"));
+        when(analyzerService.analyze(anyString())).thenReturn("[]");
+
+        CompletableFuture<AnalysisJobResponse> waiting = service.awaitJob(job.getId(), null, Duration.ofSeconds(5));
+        service.enqueue(null, List.of(job.getId()));
+
+        assertThat(waiting.get(2, TimeUnit.SECONDS).status()).isEqualTo(AnalysisJobStatus.DONE.name());
+        verify(jobRepo).finish(eq(job.getId()), eq(AnalysisJobStatus.DONE), eq("[]"), isNull(), any());
+        assertThat(service.waitingJobs()).isZero();
+    }
+
+    @Test
+    void persistedJobWithSavedResultIsNotAnalyzedAgain() throws Exception {
+        // ripreso dopo un riavvio: Policy e Analysis erano già state salvate con il risultato
+        job.setPersist(true);
+        job.setResult("[1]");
+        when(jobRepo.claim(eq(job.getId()), any())).thenReturn(1);
+        when(jobRepo.save(any(AnalysisJob.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        CompletableFuture<AnalysisJobResponse> waiting = service.awaitJob(job.getId(), null, Duration.ofSeconds(5));
+        service.enqueue(null, List.of(job.getId()));
+
+        AnalysisJobResponse r = waiting.get(2, TimeUnit.SECONDS);
+        assertThat(r.status()).isEqualTo(AnalysisJobStatus.DONE.name());
+        assertThat(r.resJson()).isEqualTo("[1]");
+        verify(analyzerService, never()).analyze(anyString());
+        verify(policyService, never()).addPolicyAndAnalysis(any());
+    }
+
+    @Test
+    void persistedJobSavesResultWithPolicy() throws Exception {
+        job.setPersist(true);
+        when(jobRepo.claim(eq(job.getId()), any())).thenReturn(1);
+        when(jobRepo.save(any(AnalysisJob.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(analyzerService.analyze(anyString())).thenReturn("[]");
+
+        CompletableFuture<AnalysisJobResponse> waiting = service.awaitJob(job.getId(), null, Duration.ofSeconds(5));
+        service.enqueue(null, List.of(job.getId()));
+
+        assertThat(waiting.get(2, TimeUnit.SECONDS).status()).isEqualTo(AnalysisJobStatus.DONE.name());
+        var order = inOrder(policyService, jobRepo);
+        order.verify(policyService).addPolicyAndAnalysis(any());
+        order.verify(jobRepo).saveResult(job.getId(), "[]");
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.myapp.service;
+
+import com.example.myapp.entity.Analysis;
+import com.example.myapp.entity.AnalysisItemEntry;
+import com.example.myapp.repository.AnalysisItemRepository;
+import com.example.myapp.repository.AnalysisRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class AnalysisReportServiceTest {
+
+    private final AnalysisItemRepository analysisItemRepo = mock(AnalysisItemRepository.class);
+    private final AnalysisReportService service =
+            new AnalysisReportService(mock(AnalysisRepository.class), analysisItemRepo);
+
+    @Test
+    void mixedCaseStoredStatusMatchesQuery() {
+        // come l'analyzer lo ha scritto in analysis.data, e come finisce in analysis_item
+        String stored = "[{\"id\":\"GDPR_13_2_a-\",\"status\":\"Not_Required\",\"reasoning\":\"\"}]";
+        AnalysisItemEntry entry = PolicyService.itemEntries(new Analysis(), AnalysisJsonParser.parse(stored)).get(0);
+        when(analysisItemRepo.findPolicyIdsWithItemStatus(1L, entry.getItemId(), entry.getStatus().name()))
+                .thenReturn(List.of(42L));
+
+        assertThat(service.policiesWithItemStatus(1L, "GDPR_13_2_a", "not required")).containsExactly(42L);
+        assertThat(service.policiesWithItemStatus(1L, "GDPR_13_2_a-", "NOT_REQUIRED")).containsExactly(42L);
+    }
+
+    @Test
+    void unknownStatusIsRejected() {
+        assertThatThrownBy(() -> service.policiesWithItemStatus(1L, "GDPR_13_2_a", "maybe"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(analysisItemRepo);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.myapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class AnalyzerWorkerPoolTest {
+
+    private final AnalyzerToolBundle toolBundle = mock(AnalyzerToolBundle.class);
+    private AnalyzerWorkerPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // ogni worker è una JVM che esegue StubAnalyzerWorker
+        when(toolBundle.executable()).thenReturn(Path.of(System.getProperty("java.home"), "bin", "java"));
+        when(toolBundle.newWorkspace()).thenAnswer(inv -> {
+            AnalyzerToolBundle.Workspace ws = mock(AnalyzerToolBundle.Workspace.class);
+            when(ws.dir()).thenReturn(Files.createTempDirectory("stub-worker-"));
+            return ws;
+        });
+        // il worker parte nella sua directory di lavoro: classpath con percorsi assoluti
+        String classpath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .map(e -> Path.of(e).toAbsolutePath().toString())
+                .collect(Collectors.joining(File.pathSeparator));
+        String args = "-cp " + classpath + " " + StubAnalyzerWorker.class.getName();
+        // health check solo su chiamata esplicita
+        pool = new AnalyzerWorkerPool(toolBundle, new ObjectMapper(), true, 2, args,
+                Duration.ofSeconds(30), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void spawnsWorkersOnFirstUse() {
+        assertThat(pool.analyze("hello", "all")).isEqualTo("[\"hello\"]");
+        assertThat(pool.liveWorkers()).isEqualTo(2);
+    }
+
+    @Test
+    void replacesWorkerAfterCrash() {
+        pool.start();
+
+        assertThatThrownBy(() -> pool.analyze("crash", "all")).hasMessage("Analysis failed");
+
+        assertThat(pool.liveWorkers()).isEqualTo(2);
+        assertThat(pool.analyze("a", "all")).isEqualTo("[\"a\"]");
+        assertThat(pool.analyze("b", "all")).isEqualTo("[\"b\"]");
+    }
+
+    @Test
+    void healthCheckReplacesDeadIdleWorker() {
+        pool.start();
+        // il worker risponde e poi termina: torna in coda da morto
+        assertThat(pool.analyze("exit", "all")).isEqualTo("[\"exit\"]");
+
+        pool.checkHealth();
+
+        // la coda è FIFO: senza sostituzione la seconda analisi prenderebbe il worker morto
+        assertThat(pool.liveWorkers()).isEqualTo(2);
+        assertThat(pool.analyze("a", "all")).isEqualTo("[\"a\"]");
+        assertThat(pool.analyze("b", "all")).isEqualTo("[\"b\"]");
+    }
+
+    @Test
+    void concurrentReplacementsDoNotGrowThePool() throws Exception {
+        pool.start();
+        ExecutorService threads = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                tasks.add(threads.submit(() -> {
+                    try {
+                        pool.analyze("crash", "all");
+                    } catch (RuntimeException expected) {
+                        // il worker viene sostituito
+                    }
+                }));
+                tasks.add(threads.submit(pool::checkHealth));
+            }
+            for (Future<?> t : tasks) t.get();
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertThat(pool.liveWorkers()).isEqualTo(2);
+    }
+
+    @Test
+    void shutdownStopsAllWorkers() {
+        pool.start();
+
+        pool.shutdown();
+
+        assertThat(pool.liveWorkers()).isZero();
+    }
+}
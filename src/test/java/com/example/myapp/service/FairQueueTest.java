@@ -0,0 +1,62 @@
+package com.example.myapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FairQueueTest {
+
+    private final AnalysisJobService.FairQueue queue = new AnalysisJobService.FairQueue();
+
+    @Test
+    void emptyQueueReturnsNull() {
+        assertThat(queue.poll()).isNull();
+    }
+
+    @Test
+    void usersAreServedInTurn() {
+        UUID a1 = UUID.randomUUID(), a2 = UUID.randomUUID(), a3 = UUID.randomUUID();
+        UUID b1 = UUID.randomUUID(), c1 = UUID.randomUUID();
+        // l'utente 1 accoda un lotto prima degli altri
+        queue.add(1L, a1);
+        queue.add(1L, a2);
+        queue.add(1L, a3);
+        queue.add(2L, b1);
+        queue.add(3L, c1);
+
+        assertThat(drain()).containsExactly(a1, b1, c1, a2, a3);
+    }
+
+    @Test
+    void userReturningAfterEmptyingRejoinsAtTheEnd() {
+        UUID a1 = UUID.randomUUID(), a2 = UUID.randomUUID(), b1 = UUID.randomUUID(), b2 = UUID.randomUUID();
+        queue.add(1L, a1);
+        queue.add(2L, b1);
+        queue.add(2L, b2);
+
+        assertThat(queue.poll()).isEqualTo(a1);
+        queue.add(1L, a2);
+
+        assertThat(drain()).containsExactly(b1, a2, b2);
+    }
+
+    @Test
+    void anonymousJobsShareOneFifo() {
+        UUID n1 = UUID.randomUUID(), n2 = UUID.randomUUID(), a1 = UUID.randomUUID();
+        queue.add(null, n1);
+        queue.add(null, n2);
+        queue.add(1L, a1);
+
+        assertThat(drain()).containsExactly(n1, a1, n2);
+    }
+
+    private List<UUID> drain() {
+        List<UUID> out = new ArrayList<>();
+        for (UUID id = queue.poll(); id != null; id = queue.poll()) out.add(id);
+        return out;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.myapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PasswordHashingServiceTest {
+
+    private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    // 1 thread + 1 posto in coda, attesa massima 100 ms
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final PasswordHashingService service =
+            new PasswordHashingService(encoder, meters, 1, 1, Duration.ofMillis(100));
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void requestsBeyondCapacityAreRejected() throws Exception {
+        when(encoder.encode(anyString())).thenAnswer(inv -> {
+            release.await();
+            return "hash";
+        });
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> service.encode("a"));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> service.encode("b"));
+        verify(encoder, timeout(2000)).encode("a");
+        // "b" è in coda dietro ad "a": entrambi i posti sono occupati
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (meters.get("auth.password.queue.size").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> service.encode("c")).isInstanceOf(PasswordHashingOverloadedException.class);
+
+        release.countDown();
+        assertThat(running.get(2, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(2, TimeUnit.SECONDS)).isEqualTo("hash");
+        // i posti sono stati restituiti
+        assertThat(service.encode("d")).isEqualTo("hash");
+    }
+
+    @Test
+    void admittedHashIsNotCutByMaxWait() {
+        when(encoder.encode(anyString())).thenAnswer(inv -> {
+            Thread.sleep(300);
+            return "slow";
+        });
+
+        assertThat(service.encode("a")).isEqualTo("slow");
+    }
+}
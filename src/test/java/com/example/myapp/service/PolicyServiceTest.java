@@ -0,0 +1,101 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.PolicyPreview;
+import com.example.myapp.dto.PolicyScoreRow;
+import com.example.myapp.dto.StringDto;
+import com.example.myapp.repository.AnalysisItemRepository;
+import com.example.myapp.repository.AnalysisRepository;
+import com.example.myapp.repository.PolicyRepository;
+import com.example.myapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PolicyServiceTest {
+
+    private final PolicyRepository policyRepo = mock(PolicyRepository.class);
+    private final PolicyService service = service(Duration.ofSeconds(30), 2);
+
+    @Test
+    void policyWithoutPreviewIsSkipped() {
+        when(policyRepo.findPageWithScore(eq(1L), anyInt(), anyBoolean(), anyInt(), anyLong()))
+                .thenReturn(List.of(row(10L, 7), row(11L, null)));
+        // la policy 11 è stata cancellata tra le due query
+        when(policyRepo.findPreviewsByIds(anyCollection()))
+                .thenReturn(List.of(new PolicyPreview(10L, "testo", 5, OffsetDateTime.now())));
+
+        var list = service.getPolicies(new StringDto("1 / 1"), null, "date", 0).list();
+
+        assertThat(list).hasSize(1);
+        assertThat(list.get(0).id()).isEqualTo(10L);
+        assertThat(list.get(0).good()).isEqualTo(7);
+    }
+
+    @Test
+    void pageBelowOneIsRejected() {
+        assertThatThrownBy(() -> service.getPolicies(new StringDto("1 / 0"), null, "date", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(policyRepo);
+    }
+
+    @Test
+    void malformedRequestIsRejected() {
+        assertThatThrownBy(() -> service.getPolicies(new StringDto("1"), null, "date", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.getPolicies(new StringDto("a / 1"), null, "date", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void queryErrorsKeepTheirCause() {
+        when(policyRepo.findPageWithScore(anyLong(), anyInt(), anyBoolean(), anyInt(), anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+
+        // nessun RuntimeException generico: l'errore arriva all'handler così com'è
+        assertThatThrownBy(() -> service.getPolicies(new StringDto("1 / 1"), null, "date", 0))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    @Test
+    void countCacheIsBounded() {
+        when(policyRepo.countByUser_Id(anyLong())).thenReturn(3L);
+
+        for (long user = 1; user <= 3; user++) service.numPages(new StringDto(String.valueOf(user)), null);
+
+        assertThat(service.cachedCounts()).isEqualTo(2);
+        // l'utente 1 è il più vecchio ed è stato rimosso: nuovo COUNT
+        service.numPages(new StringDto("1"), null);
+        verify(policyRepo, times(2)).countByUser_Id(1L);
+    }
+
+    @Test
+    void expiredCountsAreDropped() {
+        PolicyService noTtl = service(Duration.ZERO, 100);
+        when(policyRepo.countByUser_Id(anyLong())).thenReturn(3L);
+
+        assertThat(noTtl.numPages(new StringDto("1"), 6).totalItems()).isEqualTo(3);
+        noTtl.numPages(new StringDto("2"), 6);
+
+        assertThat(noTtl.cachedCounts()).isZero();
+    }
+
+    private PolicyService service(Duration countTtl, int countCacheSize) {
+        return new PolicyService(mock(AnalysisRepository.class), mock(AnalysisItemRepository.class), policyRepo,
+                mock(UserRepository.class), mock(AnalyzerService.class), 6, countTtl, countCacheSize);
+    }
+
+    private static PolicyScoreRow row(Long id, Integer score) {
+        return new PolicyScoreRow() {
+            @Override public Long getId() { return id; }
+            @Override public Integer getScore() { return score; }
+        };
+    }
+}
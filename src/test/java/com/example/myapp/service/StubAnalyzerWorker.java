@@ -0,0 +1,41 @@
+package com.example.myapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.*;
+
+/**
+ * Finto policy-analyzer in modalità server, avviato come processo da AnalyzerWorkerPoolTest.
+ * Parla lo stesso protocollo a frame; il testo della policy decide il comportamento:
+ * "crash" termina senza risposta, "exit" risponde e poi termina, altro viene restituito come risultato.
+ */
+public final class StubAnalyzerWorker {
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        while (true) {
+            int len;
+            try {
+                len = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            JsonNode req = mapper.readTree(in.readNBytes(len));
+            ObjectNode res = mapper.createObjectNode().put("ok", true);
+            if ("analyze".equals(req.path("op").asText())) {
+                String policy = req.path("policy").asText();
+                if ("crash".equals(policy)) System.exit(1);
+                res.putArray("result").add(policy);
+            }
+            byte[] payload = mapper.writeValueAsBytes(res);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+            if ("exit".equals(req.path("policy").asText())) System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.myapp.service;
+
+import com.example.myapp.dto.StoredRefreshToken;
+import com.example.myapp.service.RefreshTokenStore.Revocation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindRefreshTokenStoreTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+    private WriteBehindRefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        // TransactionTemplate su un transaction manager finto: begin/commit non fanno nulla
+        store = new WriteBehindRefreshTokenStore(jdbc, mock(PlatformTransactionManager.class), meters, 500,
+                Duration.ofHours(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesInsertsWithCurrentStateThenRevocations() {
+        StoredRefreshToken t = token(1L, 1, now.plusDays(7), null);
+        store.save(t);
+        assertThat(store.revokeIfActive(t.tokenHash(), now)).isEqualTo(Revocation.REVOKED);
+
+        store.flush();
+
+        ArgumentCaptor<List<Object[]>> inserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Object[]>> revokes = ArgumentCaptor.forClass(List.class);
+        var order = inOrder(jdbc);
+        order.verify(jdbc).batchUpdate(startsWith("INSERT"), inserts.capture());
+        order.verify(jdbc).batchUpdate(startsWith("UPDATE"), revokes.capture());
+        // l'INSERT porta già lo stato revocato, con il momento della revoca
+        assertThat(inserts.getValue().get(0)[4]).isEqualTo(true);
+        assertThat(inserts.getValue().get(0)[5]).isEqualTo(now);
+        assertThat(revokes.getValue().get(0)[0]).isEqualTo(now);
+        assertThat(meters.counter("auth.refresh_store.flushed").count()).isEqualTo(2);
+    }
+
+    @Test
+    void transientFailureIsRetriedOnNextFlush() {
+        when(jdbc.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenReturn(new int[]{1});
+        store.save(token(1L, 1, now.plusDays(7), null));
+
+        store.flush();
+        assertThat(meters.counter("auth.refresh_store.flush.errors").count()).isEqualTo(1);
+        assertThat(meters.counter("auth.refresh_store.flushed").count()).isZero();
+
+        store.flush();
+        verify(jdbc, times(2)).batchUpdate(startsWith("INSERT"), anyList());
+        assertThat(meters.counter("auth.refresh_store.flushed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void droppedInsertIsRemovedFromMemory() {
+        when(jdbc.batchUpdate(anyString(), anyList())).thenThrow(new DataIntegrityViolationException("fk"));
+        StoredRefreshToken t = token(1L, 1, now.plusDays(7), null);
+        store.save(t);
+
+        store.flush();
+
+        assertThat(store.findActiveByUser(1L, now)).isEmpty();
+        assertThat(store.revokeIfActive(t.tokenHash(), now)).isEqualTo(Revocation.NOT_FOUND);
+    }
+
+    @Test
+    void evictionRemovesExpiredAndOldRevokedTokens() {
+        StoredRefreshToken active = token(1L, 1, now.plusDays(7), null);
+        StoredRefreshToken expired = token(1L, 2, now.minusMinutes(1), null);
+        StoredRefreshToken recentlyRevoked = token(1L, 3, now.plusDays(7), now.minusMinutes(10));
+        StoredRefreshToken oldRevoked = token(2L, 4, now.plusDays(7), now.minusHours(2));
+        List.of(active, expired, recentlyRevoked, oldRevoked).forEach(store::save);
+
+        store.evictExpired();
+
+        assertThat(meters.get("auth.refresh_store.size").gauge().value()).isEqualTo(2);
+        assertThat(store.revokeIfActive(recentlyRevoked.tokenHash(), now)).isEqualTo(Revocation.INACTIVE);
+        assertThat(store.revokeIfActive(oldRevoked.tokenHash(), now)).isEqualTo(Revocation.NOT_FOUND);
+        assertThat(store.revokeIfActive(expired.tokenHash(), now)).isEqualTo(Revocation.NOT_FOUND);
+        assertThat(store.findActiveByUser(1L, now)).containsExactly(active);
+    }
+
+    @Test
+    void shutdownFlushesPendingChanges() {
+        store.save(token(1L, 1, now.plusDays(7), null));
+
+        store.shutdown();
+
+        verify(jdbc).batchUpdate(startsWith("INSERT"), anyList());
+        assertThat(meters.get("auth.refresh_store.pending").gauge().value()).isZero();
+    }
+
+    private static StoredRefreshToken token(Long userId, int seed, OffsetDateTime expiresAt, OffsetDateTime revokedAt) {
+        byte[] hash = new byte[32];
+        hash[0] = (byte) seed;
+        return new StoredRefreshToken(userId, hash, expiresAt.minusDays(7), expiresAt, revokedAt);
+    }
+}